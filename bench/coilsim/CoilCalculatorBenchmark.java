@@ -0,0 +1,42 @@
+package coilsim;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the coil arithmetic behind InductorSim9.recalculateEverything(),
+ * for every wire size of one gauge system, on the applet's starting coil
+ * (75mm OD, 50mm ID, 35mm long).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoilCalculatorBenchmark
+{
+    @Param({"1", "2", "3"})
+    public int gauge;               // WireCatalog.AWG, SWG, METRIC
+
+    private CopperWire[] m_sizes;
+
+    @Setup
+    public void setup() {
+        m_sizes = WireCatalog.forType(gauge).toArray();
+    }
+
+    @Benchmark
+    public void calculateAllSizes(Blackhole bh) {
+        for (int ii=0; ii<m_sizes.length; ii++) {
+            bh.consume(CoilCalculator.calculate(75.F, 50.F, 35.F, m_sizes[ii]));
+        }
+    }
+
+    @Benchmark
+    public CoilResult calculateOne() {
+        return CoilCalculator.calculate(75.F, 50.F, 35.F, m_sizes[m_sizes.length / 2]);
+    }
+}
@@ -0,0 +1,48 @@
+package rlc;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the number formatting and axis scaling done on every repaint.
+ * Each call works through the same spread of values, from microamps to
+ * kiloamps, so no one branch of the formatting gets all the attention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestBenchmark
+{
+    private static final int NUM_VALUES = 64;
+
+    private final Nearest m_nearest = new Nearest();
+    private final double[] m_values = new double[NUM_VALUES];
+
+    @Setup
+    public void setup() {
+        for (int ii=0; ii<NUM_VALUES; ii++) {
+            m_values[ii] = 1.234E-6 * Math.pow(10., ii * 10. / NUM_VALUES);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void toStringEng(Blackhole bh) {
+        for (int ii=0; ii<NUM_VALUES; ii++) {
+            bh.consume(m_nearest.toStringEng(m_values[ii], 3, "A"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void fractionOfDecade(Blackhole bh) {
+        for (int ii=0; ii<NUM_VALUES; ii++) {
+            bh.consume(Nearest.FractionOfDecade(m_values[ii]));
+        }
+    }
+}
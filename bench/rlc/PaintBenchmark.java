@@ -0,0 +1,75 @@
+package rlc;
+
+import coilsim.InductorSim9;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one repaint of each applet, drawn off-screen into an image:
+ * - CoilSim20: copying the cached graph (an expose), and drawing the
+ *   labels and graphs again after a new result
+ * - InductorSim9: copying the cached background and picture of the coil
+ *
+ * The applets are real AWT/Swing components, so this needs a display
+ * (or Xvfb); it refuses to run on a headless machine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaintBenchmark
+{
+    @Param({"false", "true"})
+    public boolean diode;
+
+    private CoilSim20 m_rlc;
+    private InductorSim9 m_coil;
+    private BufferedImage m_image;
+    private Graphics2D m_g;
+
+    @Setup
+    public void setup() {
+        if (GraphicsEnvironment.isHeadless())
+            throw new IllegalStateException("PaintBenchmark needs a display, e.g. run it under xvfb-run");
+
+        m_rlc = new CoilSim20();
+        m_rlc.init();
+        m_rlc.checkboxDiode.setState(diode);
+        m_rlc.runSimAndWait();
+
+        m_coil = new InductorSim9();
+        m_coil.init();
+
+        m_image = new BufferedImage(1000, 600, BufferedImage.TYPE_INT_RGB);
+        m_g = m_image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintRlcGraphs() {
+        m_rlc.paint(m_g);
+        return m_image;
+    }
+
+    @Benchmark
+    public BufferedImage paintRlcNewResult() {
+        m_rlc.invalidateGraph();
+        m_rlc.paint(m_g);
+        return m_image;
+    }
+
+    @Benchmark
+    public BufferedImage paintCoil() {
+        m_coil.paint(m_g);
+        return m_image;
+    }
+}
@@ -0,0 +1,63 @@
+package rlc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one whole run stepped the old way, one SimState object per tick
+ * with SimState.NextState(), at the applet's starting component values.
+ *
+ * Compare with SolverBenchmark, which runs the same circuit with the
+ * primitive-buffer solvers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimStateBenchmark
+{
+    @Param({"100", "500", "2000"})
+    public int steps;               // clock ticks in the run
+
+    @Param({"false", "true"})
+    public boolean diode;
+
+    private Circuit m_circuit;
+    private SimContext m_context;
+    private double m_dt;
+
+    @Setup
+    public void setup() {
+        m_circuit = new Circuit(CoilSim20.INIT_RESISTANCE, CoilSim20.INIT_INDUCTANCE,
+                                CoilSim20.INIT_CAPACITANCE, diode);
+        m_context = new SimContext(steps);
+        m_dt = Circuit.getTotalSimulationTime(CoilSim20.INIT_INDUCTANCE, CoilSim20.INIT_CAPACITANCE) / steps;
+    }
+
+    /**
+     * A chain of NextState() calls, as CoilSim20 used to run it.
+     * Note RK4 is unstable with the diode at these step counts; the
+     * arithmetic costs the same whether or not the answer is any good.
+     */
+    @Benchmark
+    public SimState nextStateChain() {
+        m_context.begin(m_circuit, m_dt);
+        SimState state = new SimState(m_context, CoilSim20.INIT_VOLTAGE, 0);
+        for (int ii=1; ii<steps; ii++) {
+            state = state.NextState(m_dt);
+        }
+        return state;
+    }
+
+    /**
+     * Just one step, so the cost per tick can be seen without the loop.
+     */
+    @Benchmark
+    public SimState nextStateOnce() {
+        m_context.begin(m_circuit, m_dt);
+        return new SimState(m_context, CoilSim20.INIT_VOLTAGE, 0).NextState(m_dt);
+    }
+}
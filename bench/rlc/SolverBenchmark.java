@@ -0,0 +1,56 @@
+package rlc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a complete simulation, the same work CoilSim20.runSim() does
+ * before it repaints: work out the run time from L and C, build the
+ * circuit, run the chosen solver into a SimContext with event detection.
+ *
+ * Every solver, step count and diode setting is a parameter, so the
+ * integrators can be compared with numbers instead of guesses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark
+{
+    @Param({"rk4", "rk45", "implicit", "analytic"})
+    public String solver;
+
+    @Param({"100", "500", "2000"})
+    public int steps;               // clock ticks in the run
+
+    @Param({"false", "true"})
+    public boolean diode;
+
+    private Solver m_solver;
+    private SimContext m_context;
+
+    @Setup
+    public void setup() {
+        if (solver.equals("rk4"))
+            m_solver = new RK4Kernel();
+        else if (solver.equals("rk45"))
+            m_solver = new DormandPrince45(1E-6, 1E-6);     // same as CoilSim20
+        else if (solver.equals("implicit"))
+            m_solver = new ImplicitTRBDF2();
+        else
+            m_solver = new AnalyticSolver();    // hands the diode to the implicit solver
+        m_context = new SimContext(steps);
+    }
+
+    @Benchmark
+    public double runSim() {
+        float elapsed = Circuit.getTotalSimulationTime(CoilSim20.INIT_INDUCTANCE, CoilSim20.INIT_CAPACITANCE);
+        Circuit circuit = new Circuit(CoilSim20.INIT_RESISTANCE, CoilSim20.INIT_INDUCTANCE,
+                                      CoilSim20.INIT_CAPACITANCE, diode);
+        m_context.run(m_solver, circuit, CoilSim20.INIT_VOLTAGE, 0, elapsed / steps);
+        return m_context.getPeakCurrent();
+    }
+}
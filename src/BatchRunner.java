@@ -0,0 +1,470 @@
+import coilsim.CoilCalculator;
+import coilsim.CoilResult;
+import coilsim.CopperWire;
+import coilsim.ParetoFront;
+import coilsim.ParetoSearch;
+import coilsim.WireCatalog;
+import rlc.AnalyticSolver;
+import rlc.Circuit;
+import rlc.Histogram;
+import rlc.MonteCarlo;
+import rlc.RunSummary;
+import rlc.SimContext;
+import rlc.ThermalModel;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+/**
+ * Command line entry point for running the simulators without a screen,
+ * e.g. on a build server. Reads one design per line of CSV from stdin and
+ * writes one line of results per design to stdout:
+ *
+ *   java BatchRunner rlc [steps] < circuits.csv > results.csv
+ *       input:  volts, ohms, farads, henries [, diode (0/1) [, copper kg]]
+ *               with the copper's weight, all of the ohms are taken to be
+ *               the coil's, and it is heated during the run (ThermalModel)
+ *   java BatchRunner coil < coils.csv > results.csv
+ *       input:  OD mm, ID mm, length mm, wire gauge (e.g. "18 AWG", "20 SWG", "1.00 mm")
+ *               [, volts, farads [, other ohms [, diode (0/1)]]]
+ *               with a capacitor bank, it is fired into the coil too, and the
+ *               peak current and how hot the coil got are added
+ *   java BatchRunner montecarlo runs seed tolV tolR tolC tolL [normal] < circuits.csv > spread.csv
+ *       input:  volts, ohms, farads, henries [, diode (0/1)], the same as rlc
+ *       output: 5th, 50th and 95th percentiles of the peak current, pulse width
+ *               and zero-crossing time over that many runs (MonteCarlo), with
+ *               each part picked at random within its tolerance, e.g. 0.2 = +/-20%;
+ *               uniformly, or on a bell curve with "normal"
+ *   java BatchRunner pareto awg|swg|metric|all minOD maxOD minID maxID minLength maxLength > front.csv
+ *       no input: searches every coil in the range (whole mm) with every wire
+ *       size, and writes the ParetoFront of inductance against resistance,
+ *       weight and wire length (ParetoSearch)
+ *
+ * A header line, blank lines and lines starting with '#' are skipped. Bad
+ * lines are reported on stderr and left out of the results.
+ *
+ * Nothing here touches AWT or Swing. The input is read a block of lines at a
+ * time, the block is evaluated on all processors, and its results are written
+ * out in the same order, so memory use doesn't depend on the size of the input.
+ */
+public class BatchRunner {
+    private static final int BLOCK_SIZE = 8192;         // lines in memory at once
+    private static final int BUFFER_SIZE = 1 << 16;     // bytes
+    private static final int DEFAULT_STEPS = 500;       // same as the RLC applet
+
+    private static final String RLC_HEADER =
+        "volts,ohms,farads,henries,diode,peak_amps,peak_seconds,zero_crossing_seconds,pulse_width_seconds,final_volts,"
+        + "temperature_rise_c";
+    private static final String MONTE_CARLO_HEADER =
+        "volts,ohms,farads,henries,diode,runs,peak_amps_p5,peak_amps_p50,peak_amps_p95,"
+        + "pulse_width_p5,pulse_width_p50,pulse_width_p95,"
+        + "reversed_runs,zero_crossing_p5,zero_crossing_p50,zero_crossing_p95";
+    private static final String COIL_HEADER =
+        "od_mm,id_mm,length_mm,gauge,turns_per_layer,layers,turns,wire_meters,millihenries,ohms,kg,"
+        + "peak_amps,temperature_rise_c";
+
+    /**
+     * evaluates one line of input; each thread gets its own
+     */
+    private interface Evaluator {
+        /**
+         * @return one line of output, without the newline
+         * @throws IllegalArgumentException if the line makes no sense
+         */
+        String evaluate(String[] fields);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1)
+            usage();
+        final ThreadLocal<Evaluator> evaluator;
+        final String sHeader;
+        if (args[0].equals("rlc")) {
+            final int nSteps = (args.length > 1) ? parseSteps(args[1]) : DEFAULT_STEPS;
+            // solvers and buffers belong to one thread, so hand one to each
+            evaluator = ThreadLocal.withInitial(() -> new RlcEvaluator(nSteps));
+            sHeader = RLC_HEADER;
+        } else if (args[0].equals("coil")) {
+            evaluator = ThreadLocal.withInitial(() -> new CoilEvaluator(WireCatalog.all()));
+            sHeader = COIL_HEADER;
+        } else if (args[0].equals("pareto")) {
+            pareto(args);
+            return;
+        } else if (args[0].equals("montecarlo")) {
+            final MonteCarloEvaluator monteCarlo = parseMonteCarlo(args);
+            evaluator = ThreadLocal.withInitial(() -> monteCarlo);
+            sHeader = MONTE_CARLO_HEADER;
+        } else {
+            usage();
+            return;
+        }
+
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        Writer out = new BufferedWriter(
+            new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        out.write(sHeader);
+        out.write('\n');
+
+        final String[] lines = new String[BLOCK_SIZE];
+        final String[] results = new String[BLOCK_SIZE];
+        long nLineNumber = 0;               // of the first line in the block
+        boolean bFirstLine = true;
+        int nLines;
+        do {
+            // read a block
+            nLines = 0;
+            String line;
+            while (nLines < BLOCK_SIZE && (line = in.readLine()) != null) {
+                lines[nLines++] = line;
+            }
+            if (bFirstLine && nLines > 0 && isHeader(lines[0]))
+                lines[0] = "";
+            bFirstLine = false;
+
+            // evaluate it on every processor
+            final long nFirst = nLineNumber;
+            IntStream.range(0, nLines).parallel().forEach(k ->
+                results[k] = evaluateLine(evaluator.get(), lines[k], nFirst + k + 1));
+
+            // write it in the original order
+            for (int k=0; k<nLines; k++) {
+                if (results[k] != null) {
+                    out.write(results[k]);
+                    out.write('\n');
+                }
+            }
+            nLineNumber += nLines;
+        } while (nLines == BLOCK_SIZE);
+        out.flush();
+    }
+
+    private static void usage() {
+        System.err.println("usage: java BatchRunner rlc [steps] < circuits.csv     (steps >= 2)");
+        System.err.println("       java BatchRunner coil < coils.csv");
+        System.err.println("       java BatchRunner montecarlo runs seed tolV tolR tolC tolL [normal] < circuits.csv");
+        System.err.println("           (tolerances as fractions, e.g. 0.2 = +/-20%)");
+        System.err.println("       java BatchRunner pareto awg|swg|metric|all minOD maxOD minID maxID minLength maxLength");
+        System.exit(2);
+    }
+
+    /**
+     * Search for the Pareto front and write it to stdout, or the usage
+     * message if the arguments are no good.
+     */
+    private static void pareto(String[] args) throws IOException {
+        WireCatalog catalog = (args.length == 8) ? WireCatalog.forName(args[1]) : null;
+        int[] range = new int[6];       // OD, ID, length (mm)
+        try {
+            for (int ii=0; catalog != null && ii<range.length; ii++) {
+                range[ii] = Integer.parseInt(args[ii + 2]);
+            }
+        } catch (NumberFormatException e) {
+            catalog = null;
+        }
+        if (catalog == null || range[0] > range[1] || range[2] > range[3] || range[4] > range[5] || range[2] < 0)
+            usage();
+
+        ParetoSearch search = new ParetoSearch(catalog, range[0], range[1], range[2], range[3], range[4], range[5]);
+        ParetoFront front = search.search();
+        Writer out = new BufferedWriter(
+            new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        front.writeCsv(out);
+        out.flush();
+        System.err.println(front.size() + " of " + search.getEvaluated() + " coils are on the front");
+    }
+
+    /**
+     * @return the evaluator for the montecarlo arguments, or doesn't return if they're no good
+     */
+    private static MonteCarloEvaluator parseMonteCarlo(String[] args) {
+        if (args.length < 7 || args.length > 8 || (args.length == 8 && !args[7].equals("normal")))
+            usage();
+        try {
+            long nRuns = Long.parseLong(args[1]);
+            long seed = Long.parseLong(args[2]);
+            double[] tolerance = new double[MonteCarlo.NumberOfComponents];
+            tolerance[MonteCarlo.VOLTAGE] = Double.parseDouble(args[3]);
+            tolerance[MonteCarlo.RESISTANCE] = Double.parseDouble(args[4]);
+            tolerance[MonteCarlo.CAPACITANCE] = Double.parseDouble(args[5]);
+            tolerance[MonteCarlo.INDUCTANCE] = Double.parseDouble(args[6]);
+            boolean bOK = nRuns >= 1;
+            for (int ii=0; ii<tolerance.length; ii++) {
+                bOK &= tolerance[ii] >= 0 && tolerance[ii] < 1;
+            }
+            if (bOK)
+                return new MonteCarloEvaluator(nRuns, seed, tolerance,
+                                               args.length == 8 ? MonteCarlo.NORMAL : MonteCarlo.UNIFORM);
+        } catch (NumberFormatException e) {
+            // fall through to the usage message
+        }
+        usage();
+        return null;
+    }
+
+    /**
+     * @return the number of steps, or doesn't return if it isn't at least 2
+     */
+    private static int parseSteps(String s) {
+        int nSteps = 0;
+        try {
+            nSteps = Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            // fall through to the usage message
+        }
+        if (nSteps < 2)
+            usage();
+        return nSteps;
+    }
+
+    /**
+     * @return result line, or null for a line to skip
+     */
+    private static String evaluateLine(Evaluator evaluator, String line, long nLineNumber) {
+        String s = line.trim();
+        if (s.length() == 0 || s.charAt(0) == '#')
+            return null;
+        try {
+            return evaluator.evaluate(split(s));
+        } catch (RuntimeException e) {
+            System.err.println("line " + nLineNumber + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // a header is any first line that doesn't start like a number
+    private static boolean isHeader(String line) {
+        String s = line.trim();
+        if (s.length() == 0)
+            return false;
+        char ch = s.charAt(0);
+        return !(Character.isDigit(ch) || ch == '.' || ch == '-' || ch == '+' || ch == '#');
+    }
+
+    // split on commas, trimming each field
+    private static String[] split(String line) {
+        int nFields = 1;
+        for (int ii=0; ii<line.length(); ii++) {
+            if (line.charAt(ii) == ',')
+                nFields++;
+        }
+        String[] fields = new String[nFields];
+        int start = 0;
+        for (int f=0; f<nFields; f++) {
+            int end = line.indexOf(',', start);
+            if (end < 0)
+                end = line.length();
+            fields[f] = line.substring(start, end).trim();
+            start = end + 1;
+        }
+        return fields;
+    }
+
+    private static double number(String[] fields, int index, String sName) {
+        if (index >= fields.length)
+            throw new IllegalArgumentException("missing " + sName);
+        try {
+            return Double.parseDouble(fields[index]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad " + sName + " '" + fields[index] + "'");
+        }
+    }
+
+    /**
+     * @return the circuit in fields 1 ... 4 of an rlc line (field 0 is the volts)
+     */
+    private static Circuit circuit(String[] fields) {
+        double ohms = number(fields, 1, "ohms");
+        double farads = number(fields, 2, "farads");
+        double henries = number(fields, 3, "henries");
+        if (!(ohms >= 0 && farads > 0 && henries > 0))
+            throw new IllegalArgumentException("components must be positive");
+        return new Circuit(ohms, henries, farads, flag(fields, 4));
+    }
+
+    /**
+     * @return true if field 'index' is there and is "1" or "true"
+     */
+    private static boolean flag(String[] fields, int index) {
+        return fields.length > index
+            && (fields[index].equals("1") || fields[index].equalsIgnoreCase("true"));
+    }
+
+    /**
+     * the column is left empty if there's no number
+     */
+    private static void appendNumber(StringBuilder sb, double x) {
+        if (!Double.isNaN(x))
+            sb.append(x);
+    }
+
+    //----------------------------------------------------------------------
+    //           RlcEvaluator
+    //----------------------------------------------------------------------
+    private static class RlcEvaluator implements Evaluator {
+        private final int m_nSteps;
+        private final SimContext m_context;
+        private final AnalyticSolver m_solver = new AnalyticSolver();   // implicit if there's a diode
+        private final StringBuilder m_sb = new StringBuilder(160);
+
+        RlcEvaluator(int nSteps) {
+            m_nSteps = nSteps;
+            m_context = new SimContext(nSteps);
+        }
+
+        public String evaluate(String[] fields) {
+            double volts = number(fields, 0, "volts");
+            Circuit circuit = circuit(fields);
+            double ohms = circuit.getResistance();
+            double farads = circuit.getCapacitance();
+            double henries = circuit.getInductance();
+            boolean diode = circuit.hasDiode();
+            ThermalModel heat = null;
+            if (fields.length > 5) {
+                double kg = number(fields, 5, "copper kg");
+                if (!(kg > 0))
+                    throw new IllegalArgumentException("copper kg must be positive");
+                heat = new ThermalModel(ohms, kg, 0);
+            }
+            float elapsed = Circuit.getTotalSimulationTime((float)henries, (float)farads);
+            double dt = elapsed / m_nSteps;
+            m_context.setThermalModel(heat, ThermalModel.REFERENCE_TEMPERATURE);
+            m_context.run(m_solver, circuit, volts, 0, dt);
+            RunSummary summary = RunSummary.summarize(m_context);
+
+            StringBuilder sb = m_sb;
+            sb.setLength(0);
+            sb.append(volts).append(',').append(ohms).append(',')
+              .append(farads).append(',').append(henries).append(',')
+              .append(diode ? 1 : 0).append(',')
+              .append(summary.getPeakCurrent()).append(',')
+              .append(summary.getPeakTime()).append(',');
+            appendNumber(sb, summary.getZeroCrossing());
+            sb.append(',').append(summary.getPulseWidth())
+              .append(',').append(summary.getFinalVoltage()).append(',');
+            appendNumber(sb, summary.getTemperatureRise());
+            return sb.toString();
+        }
+    }
+
+    //----------------------------------------------------------------------
+    //           MonteCarloEvaluator
+    //----------------------------------------------------------------------
+    /**
+     * Every run of one line is spread over all processors by MonteCarlo
+     * itself, and keeps nothing between lines, so one evaluator does for
+     * every thread.
+     */
+    private static class MonteCarloEvaluator implements Evaluator {
+        private final long m_nRuns;
+        private final long m_seed;
+        private final double[] m_tolerance;     // fraction, by MonteCarlo component
+        private final int m_distribution;
+
+        MonteCarloEvaluator(long nRuns, long seed, double[] tolerance, int distribution) {
+            m_nRuns = nRuns;
+            m_seed = seed;
+            m_tolerance = tolerance;
+            m_distribution = distribution;
+        }
+
+        public String evaluate(String[] fields) {
+            double volts = number(fields, 0, "volts");
+            Circuit circuit = circuit(fields);
+            MonteCarlo mc = new MonteCarlo(circuit, volts);
+            for (int ii=0; ii<m_tolerance.length; ii++) {
+                mc.setTolerance(ii, m_tolerance[ii], m_distribution);
+            }
+            Histogram[] h = mc.run(m_nRuns, m_seed);
+
+            StringBuilder sb = new StringBuilder(240);
+            sb.append(volts).append(',').append(circuit.getResistance()).append(',')
+              .append(circuit.getCapacitance()).append(',').append(circuit.getInductance()).append(',')
+              .append(circuit.hasDiode() ? 1 : 0).append(',')
+              .append(m_nRuns);
+            percentiles(sb, h[MonteCarlo.PEAK_CURRENT]);
+            percentiles(sb, h[MonteCarlo.PULSE_WIDTH]);
+            sb.append(',').append(h[MonteCarlo.ZERO_CROSSING].getCount());
+            percentiles(sb, h[MonteCarlo.ZERO_CROSSING]);
+            return sb.toString();
+        }
+
+        // 5th, 50th and 95th, left empty if nothing was counted
+        private static void percentiles(StringBuilder sb, Histogram h) {
+            for (int p : new int[] { 5, 50, 95 }) {
+                sb.append(',');
+                if (h.getCount() > 0)
+                    sb.append(h.percentile(p));
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------
+    //           CoilEvaluator
+    //----------------------------------------------------------------------
+    private static class CoilEvaluator implements Evaluator {
+        private final WireCatalog m_catalog;
+        private final SimContext m_context = new SimContext(DEFAULT_STEPS);
+        private final AnalyticSolver m_solver = new AnalyticSolver();   // RK4 as the coil heats, implicit for the diode
+        private final StringBuilder m_sb = new StringBuilder(160);
+
+        CoilEvaluator(WireCatalog catalog) {
+            m_catalog = catalog;
+        }
+
+        public String evaluate(String[] fields) {
+            float od = (float)number(fields, 0, "OD");
+            float id = (float)number(fields, 1, "ID");
+            float length = (float)number(fields, 2, "length");
+            if (fields.length < 4)
+                throw new IllegalArgumentException("missing wire gauge");
+            CopperWire w = m_catalog.find(fields[3]);
+            if (w == null)
+                throw new IllegalArgumentException("unknown wire gauge '" + fields[3] + "'");
+            if (!(od > id && id >= 0 && length > 0))
+                throw new IllegalArgumentException("need OD > ID >= 0 and length > 0");
+
+            CoilResult coil = CoilCalculator.calculate(od, id, length, w);
+
+            StringBuilder sb = m_sb;
+            sb.setLength(0);
+            sb.append(od).append(',').append(id).append(',').append(length).append(',')
+              .append(w.Name().replace("  ", " ")).append(',')
+              .append(coil.TurnsPerLayer()).append(',')
+              .append(coil.Layers()).append(',')
+              .append(coil.TotalTurns()).append(',')
+              .append(coil.WireLength()).append(',')
+              .append(coil.Inductance()).append(',')
+              .append(coil.Resistance()).append(',')
+              .append(coil.Weight()).append(',');
+            if (fields.length > 4 && coil.TotalTurns() > 0) {
+                RunSummary summary = fire(coil, fields);
+                sb.append(summary.getPeakCurrent()).append(',')
+                  .append(summary.getTemperatureRise());
+            } else {
+                sb.append(',');         // no capacitor bank, or no room for a turn of wire
+            }
+            return sb.toString();
+        }
+
+        /**
+         * fire the capacitor bank in fields 4 ... 7 into the coil, heating it from 20C
+         */
+        private RunSummary fire(CoilResult coil, String[] fields) {
+            double volts = number(fields, 4, "volts");
+            double farads = number(fields, 5, "farads");
+            double ohms = (fields.length > 6) ? number(fields, 6, "other ohms") : 0;
+            if (!(farads > 0 && ohms >= 0))
+                throw new IllegalArgumentException("need farads > 0 and other ohms >= 0");
+
+            double henries = coil.Inductance() / 1000.;
+            Circuit circuit = new Circuit(coil.Resistance() + ohms, henries, farads, flag(fields, 7));
+            float elapsed = Circuit.getTotalSimulationTime((float)henries, (float)farads);
+            double dt = elapsed / DEFAULT_STEPS;
+            m_context.setThermalModel(ThermalModel.forCoil(coil, ohms), ThermalModel.REFERENCE_TEMPERATURE);
+            m_context.run(m_solver, circuit, volts, 0, dt);
+            return RunSummary.summarize(m_context);
+        }
+    }
+}
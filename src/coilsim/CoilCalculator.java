@@ -0,0 +1,110 @@
+package coilsim;
+
+/**
+ * Class coilsim.CoilCalculator -
+ * The arithmetic behind the inductor simulator, with no user interface:
+ * given the size of a coil and the wire it's wound with, work out the
+ * turns, wire length, inductance, resistance and weight.
+ *
+ * InductorSim9 uses this to fill in its labels, and batch jobs can use it
+ * without ever loading AWT. Everything here is static and keeps no state,
+ * and the geometry, wire and result objects are immutable, so it can be
+ * called from any number of threads.
+ *
+ * Typical usage, scoring many candidate coils at once:
+ *    CopperWire[] sizes = WireCatalog.forType(WireCatalog.AWG).toArray();
+ *    CoilResult[] results = CoilCalculator.calculateAll(geometries, sizes);
+ *    // results[g * sizes.length + w] is geometry g wound with wire w
+ */
+
+public final class CoilCalculator {
+    static private final float INCHES_PER_MM = 1.F/25.4F;
+
+    private CoilCalculator() {
+    }
+
+    /**
+     * @param fOD = coil outside diameter (mm)
+     * @param fID = coil inside diameter (mm)
+     * @param fLength = coil length (mm)
+     * @param w = wire size
+     * @return everything we know about the coil
+     */
+    public static CoilResult calculate(float fOD, float fID, float fLength, CopperWire w) {
+        return calculate(new CoilGeometry(fOD, fID, fLength), w);
+    }
+
+    /**
+     * Batch version: one wire size, many coils.
+     * @param geometries = coil sizes
+     * @param w = wire size
+     * @return results[ii] is for geometries[ii]
+     */
+    public static CoilResult[] calculate(CoilGeometry[] geometries, CopperWire w) {
+        CoilResult[] results = new CoilResult[geometries.length];
+        for (int ii=0; ii<geometries.length; ii++) {
+            results[ii] = calculate(geometries[ii], w);
+        }
+        return results;
+    }
+
+    /**
+     * Batch version: every coil wound with every wire size.
+     * @param geometries = coil sizes
+     * @param wires = wire sizes
+     * @return results[g * wires.length + w] is geometries[g] wound with wires[w]
+     */
+    public static CoilResult[] calculateAll(CoilGeometry[] geometries, CopperWire[] wires) {
+        CoilResult[] results = new CoilResult[geometries.length * wires.length];
+        int k = 0;
+        for (int g=0; g<geometries.length; g++) {
+            for (int w=0; w<wires.length; w++) {
+                results[k++] = calculate(geometries[g], wires[w]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param coil = coil size
+     * @param w = wire size
+     * @return everything we know about the coil
+     */
+    public static CoilResult calculate(CoilGeometry coil, CopperWire w) {
+        float fOD = coil.OD();
+        float fID = coil.ID();
+        float fLength = coil.Length();
+
+        // Calculate physical characteristics (number of turns, length)
+        int nTurnsPerLayer = (int)(fLength / w.Diameter());
+        int nNumberOfLayers = (int)((fOD - fID) / 2.F / w.Diameter());
+        int nTotalTurns = nTurnsPerLayer * nNumberOfLayers;
+        float fWireLength = (float)(Math.PI * (fOD + fID)/2.F * nTotalTurns / 1000.F); // meters
+
+        // Calculate electrical characteristics (mH, ohms)
+        // Use standard approximation for multilayer coil
+        //            0.8(N * A)^2
+        //    L = --------------------- (microhenries)
+        //         (6A) + (9B) + (10C)
+        // where:
+        //    N = number of turns
+        //    A = avg coil radius = tube radius + half of coil thickness (inches)
+        //    B = coil length (inches)
+        //    C = coil thickness (inches)
+        // (Don't use Wheeler's Formula for Inductance because it's for a spiral wound coil)
+        // @see http://www.icorp.net/users/kev/tesla/form.txt
+        //    L(uH) = (r^2) * (N^2) / (9*r + 10*h)
+        float A = (fOD + fID) / 2.F / 2.F * INCHES_PER_MM;	// inches
+        float B = fLength * INCHES_PER_MM;                    // inches
+        float C = (fOD - fID) / 2.F * INCHES_PER_MM;        // inches
+        float N = nTotalTurns;                                  // turns
+        float fInductance = 0.8F * N * N * A * A
+                          / (6.F*A + 9.F*B +10.F*C) / 1000.F;   // mH
+
+        float fResistance = w.Resistance(fWireLength);		// ohms
+        float fWireWeight = w.Weight(fWireLength);		// kg
+
+        return new CoilResult(coil, w, nTurnsPerLayer, nNumberOfLayers, fWireLength,
+                              fInductance, fResistance, fWireWeight);
+    }
+}
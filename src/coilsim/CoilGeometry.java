@@ -0,0 +1,48 @@
+package coilsim;
+
+/**
+ * Class coilsim.CoilGeometry -
+ * The physical size of a coil, before we know what it's wound with:
+ * outside diameter, inside diameter (the tube it's wound on), and length.
+ * All in mm. The object's properties cannot be modified, so one geometry
+ * can be scored with every wire size, on any number of threads.
+ *
+ * Nothing is checked here; a coil with ID >= OD just ends up with no turns.
+ */
+
+public final class CoilGeometry {
+    private final float m_fOD;          // coil outside diameter (mm)
+    private final float m_fID;          // coil inside diameter (mm)
+    private final float m_fLength;      // coil length (mm)
+
+    /**
+     * @param fOD = coil outside diameter (mm)
+     * @param fID = coil inside diameter (mm)
+     * @param fLength = coil length (mm)
+     */
+    public CoilGeometry(float fOD, float fID, float fLength) {
+        m_fOD = fOD;
+        m_fID = fID;
+        m_fLength = fLength;
+    }
+
+    /**
+     * @return coil outside diameter (mm)
+     */
+    public float OD()                   { return m_fOD; }
+
+    /**
+     * @return coil inside diameter (mm)
+     */
+    public float ID()                   { return m_fID; }
+
+    /**
+     * @return coil length (mm)
+     */
+    public float Length()               { return m_fLength; }
+
+    /**
+     * @return thickness of the winding, from the tube to the outside (mm)
+     */
+    public float Thickness()            { return (m_fOD - m_fID) / 2.F; }
+}
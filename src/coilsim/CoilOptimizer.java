@@ -0,0 +1,316 @@
+package coilsim;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class coilsim.CoilOptimizer -
+ * Instead of dragging the OD, ID and length scrollbars one value at a time,
+ * search every combination (in whole mm, like the scrollbars) with every
+ * wire size in a WireCatalog, and keep the best few designs that
+ * - are within a tolerance of the target inductance, and
+ * - are under the maximum resistance and weight.
+ * "Best" means lowest resistance, since that gives the most current;
+ * ties go to the lighter coil.
+ *
+ * Most of the search space is never looked at. For a given OD, ID and wire,
+ * the number of turns can only go up as the coil gets longer, and so do the
+ * wire length, resistance and weight. So for a whole range of lengths we can
+ * work out the fewest and most turns, and from those the least and most
+ * inductance and the least resistance and weight. If that range can't hold a
+ * good design it is skipped; otherwise it is split in half and we try again
+ * (branch and bound). Ranges of only a few lengths are calculated exactly
+ * with CoilCalculator.
+ *
+ * The ODs are shared out among all processors with fork/join. Every thread
+ * keeps its own best few designs, and they all share the resistance of the
+ * worst design anyone has in their list, so each thread can skip coils that
+ * another has already beaten. That only removes designs that can't be in the
+ * answer, so the answer is the same however the work is shared out.
+ *
+ * Typical usage:
+ *    CoilOptimizer opt = CoilOptimizer.smallRange(WireCatalog.forType(WireCatalog.AWG));
+ *    opt.setTarget(2.5F, 0.02F);         // 2.5 mH, within 2%
+ *    opt.setMaxResistance(0.5F);         // ohms
+ *    CoilResult[] best = opt.search();   // lowest resistance first
+ */
+
+public final class CoilOptimizer {
+    // same limits as the scrollbars in InductorSim9
+    static private final int MIN_OD_SIZE = 2;
+    static private final int MIN_ID_SIZE = 1;
+    static private final int MIN_COIL_LENGTH = 1;               // mm
+    static private final int MAX_ID_SIZE_SMALL =  90;
+    static private final int MAX_OD_SIZE_SMALL = 100;
+    static private final int MAX_COIL_LENGTH_SMALL = 150;       // mm
+    static private final int MAX_ID_SIZE_LARGE = 490;
+    static private final int MAX_OD_SIZE_LARGE = 500;
+    static private final int MAX_COIL_LENGTH_LARGE = 600;       // mm
+
+    // constants from CoilCalculator and CopperWire, for the bounds
+    static private final float INCHES_PER_MM = 1.F/25.4F;
+    static private final double OHM_CIRCULAR_MILS_PER_METER = 34.020198;
+    static private final double KG_PER_CIRCULAR_MIL_METER = 0.000004547;
+
+    // bounds are worked out in double, the designs in float;
+    // leave a little room so rounding never throws away a good design
+    static private final double SLACK = 1E-4;
+
+    // calculate every length exactly once a range is this short
+    static private final int LEAF_LENGTHS = 8;
+
+    // search space (mm)
+    private final WireCatalog m_catalog;
+    private final int m_nMinOD, m_nMaxOD;
+    private final int m_nMinID, m_nMaxID;
+    private final int m_nMinLength, m_nMaxLength;
+
+    // goals
+    private float m_fTarget = 1.F;                              // mH
+    private float m_fTolerance = 0.02F;                         // fraction of target
+    private float m_fMaxResistance = Float.POSITIVE_INFINITY;   // ohms
+    private float m_fMaxWeight = Float.POSITIVE_INFINITY;       // kg
+    private int m_nTopK = 10;
+
+    // statistics of the last search
+    private long m_nEvaluated;
+
+    /**
+     * @param catalog = every wire size to try, e.g. the active catalog in InductorSim9
+     * @param nMinOD, nMaxOD = range of outside diameter (mm)
+     * @param nMinID, nMaxID = range of inside diameter (mm)
+     * @param nMinLength, nMaxLength = range of coil length (mm)
+     */
+    public CoilOptimizer(WireCatalog catalog, int nMinOD, int nMaxOD, int nMinID, int nMaxID,
+                         int nMinLength, int nMaxLength) {
+        m_catalog = catalog;
+        m_nMinOD = nMinOD;
+        m_nMaxOD = nMaxOD;
+        m_nMinID = nMinID;
+        m_nMaxID = nMaxID;
+        m_nMinLength = nMinLength;
+        m_nMaxLength = nMaxLength;
+    }
+
+    /**
+     * @return an optimizer covering the "small" scrollbar ranges of InductorSim9
+     */
+    public static CoilOptimizer smallRange(WireCatalog catalog) {
+        return new CoilOptimizer(catalog, MIN_OD_SIZE, MAX_OD_SIZE_SMALL, MIN_ID_SIZE, MAX_ID_SIZE_SMALL,
+                                 MIN_COIL_LENGTH, MAX_COIL_LENGTH_SMALL);
+    }
+
+    /**
+     * @return an optimizer covering the "large" scrollbar ranges of InductorSim9
+     */
+    public static CoilOptimizer largeRange(WireCatalog catalog) {
+        return new CoilOptimizer(catalog, MIN_OD_SIZE, MAX_OD_SIZE_LARGE, MIN_ID_SIZE, MAX_ID_SIZE_LARGE,
+                                 MIN_COIL_LENGTH, MAX_COIL_LENGTH_LARGE);
+    }
+
+    /**
+     * @param fInductance = target inductance (mH)
+     * @param fTolerance = how close is close enough, as a fraction, e.g. 0.02 for 2%
+     */
+    public void setTarget(float fInductance, float fTolerance) {
+        m_fTarget = fInductance;
+        m_fTolerance = fTolerance;
+    }
+
+    /**
+     * @param fOhms = reject coils with more resistance than this
+     */
+    public void setMaxResistance(float fOhms) {
+        m_fMaxResistance = fOhms;
+    }
+
+    /**
+     * @param fKg = reject coils heavier than this
+     */
+    public void setMaxWeight(float fKg) {
+        m_fMaxWeight = fKg;
+    }
+
+    /**
+     * @param nTopK = how many designs to return (default 10)
+     */
+    public void setTopK(int nTopK) {
+        m_nTopK = nTopK;
+    }
+
+    /**
+     * @return how many coils were calculated exactly during the last
+     * search; the rest were ruled out without calculating them
+     */
+    public long getEvaluated() {
+        return m_nEvaluated;
+    }
+
+    /**
+     * Search, using all processors.
+     * @return the best designs, lowest resistance first; fewer than
+     * the top K if not that many meet the goals
+     */
+    public CoilResult[] search() {
+        return search(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Search, using the given pool of threads.
+     * @return the best designs, lowest resistance first
+     */
+    public CoilResult[] search(ForkJoinPool pool) {
+        Search search = new Search();
+        TopK<CoilResult> best = pool.invoke(new SearchTask(search, m_nMinOD, m_nMaxOD + 1));
+        m_nEvaluated = search.m_nEvaluated.sum();
+        return best.toArray(CoilResult[]::new);
+    }
+
+    //----------------------------------------------------------------------
+    //           Search
+    //----------------------------------------------------------------------
+    /**
+     * what every thread in one search shares
+     */
+    private static final class Search {
+        // resistance of the worst design in somebody's full list, as Double bits;
+        // for positive doubles the bits sort in the same order as the values
+        final AtomicLong m_nBound = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+        final LongAdder m_nEvaluated = new LongAdder();
+
+        double bound() {
+            return Double.longBitsToDouble(m_nBound.get());
+        }
+
+        void offerBound(double fOhms) {
+            long bits = Double.doubleToLongBits(fOhms);
+            long old;
+            while (bits < (old = m_nBound.get())) {
+                if (m_nBound.compareAndSet(old, bits))
+                    break;
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------
+    //           SearchTask
+    //----------------------------------------------------------------------
+    /**
+     * helper class searches a range of ODs, splitting it in half
+     * until there is only one OD left
+     */
+    private final class SearchTask extends RecursiveTask<TopK<CoilResult>> {
+        private final Search m_search;
+        private final int m_nFirstOD;
+        private final int m_nLastOD;        // exclusive
+
+        SearchTask(Search search, int nFirstOD, int nLastOD) {
+            m_search = search;
+            m_nFirstOD = nFirstOD;
+            m_nLastOD = nLastOD;
+        }
+
+        protected TopK<CoilResult> compute() {
+            if (m_nLastOD - m_nFirstOD > 1) {
+                int middle = (m_nFirstOD + m_nLastOD) >>> 1;
+                SearchTask left = new SearchTask(m_search, m_nFirstOD, middle);
+                SearchTask right = new SearchTask(m_search, middle, m_nLastOD);
+                left.fork();
+                TopK<CoilResult> best = right.compute();
+                best.merge(left.join());
+                return best;
+            }
+
+            TopK<CoilResult> best = new TopK<CoilResult>(m_nTopK, CoilOptimizer::compare);
+            int od = m_nFirstOD;
+            int nMaxID = Math.min(m_nMaxID, od - 1);
+            for (int id=m_nMinID; id<=nMaxID; id++) {
+                for (int w=0; w<m_catalog.size(); w++) {
+                    searchLengths(best, od, id, m_catalog.get(w), m_nMinLength, m_nMaxLength);
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Branch and bound over coil lengths lo ... hi (mm) for one OD, ID and wire.
+         */
+        private void searchLengths(TopK<CoilResult> best, int od, int id, CopperWire w, int lo, int hi) {
+            float d = w.Diameter();
+            int nLayers = (int)((od - id) / 2.F / d);
+            if (nLayers <= 0)
+                return;                         // wire is too thick for the winding space
+
+            // fewest and most turns anywhere in the range
+            double nMinTurns = (double)((int)(lo / d)) * nLayers;
+            double nMaxTurns = (double)((int)(hi / d)) * nLayers;
+
+            // resistance and weight only grow with the turns
+            double metersPerTurn = Math.PI * (od + id) / 2. / 1000.;
+            double minOhms = OHM_CIRCULAR_MILS_PER_METER / w.CircularMils() * metersPerTurn * nMinTurns;
+            double minKg = KG_PER_CIRCULAR_MIL_METER * w.CircularMils() * metersPerTurn * nMinTurns;
+            if (minOhms > m_fMaxResistance * (1 + SLACK) || minKg > m_fMaxWeight * (1 + SLACK))
+                return;
+            if (minOhms > m_search.bound() * (1 + SLACK) || minOhms > bound(best) * (1 + SLACK))
+                return;                         // somebody already has K better designs
+
+            // inductance grows with the turns, and shrinks as the coil gets longer
+            double A = (od + id) / 2. / 2. * INCHES_PER_MM;
+            double C = (od - id) / 2. * INCHES_PER_MM;
+            double maxL = 0.8 * nMaxTurns * nMaxTurns * A * A / (6*A + 9*lo*INCHES_PER_MM + 10*C) / 1000.;
+            double minL = 0.8 * nMinTurns * nMinTurns * A * A / (6*A + 9*hi*INCHES_PER_MM + 10*C) / 1000.;
+            if (maxL < m_fTarget * (1 - m_fTolerance) * (1 - SLACK)
+             || minL > m_fTarget * (1 + m_fTolerance) * (1 + SLACK))
+                return;
+
+            if (hi - lo < LEAF_LENGTHS) {
+                // short enough: calculate each one exactly
+                for (int len=lo; len<=hi; len++) {
+                    CoilResult coil = CoilCalculator.calculate(od, id, len, w);
+                    m_search.m_nEvaluated.increment();
+                    if (isGood(coil) && best.offer(coil) && best.isFull())
+                        m_search.offerBound(bound(best));
+                }
+                return;
+            }
+
+            int middle = (lo + hi) >>> 1;
+            searchLengths(best, od, id, w, lo, middle);
+            searchLengths(best, od, id, w, middle + 1, hi);
+        }
+    }
+
+    /**
+     * @return true if the coil meets every goal
+     */
+    private boolean isGood(CoilResult coil) {
+        return coil.TotalTurns() > 0
+            && Math.abs(coil.Inductance() - m_fTarget) <= m_fTarget * m_fTolerance
+            && coil.Resistance() <= m_fMaxResistance
+            && coil.Weight() <= m_fMaxWeight;
+    }
+
+    /**
+     * @return resistance of the worst design kept, or infinity if the list isn't full yet
+     */
+    private static double bound(TopK<CoilResult> best) {
+        return best.isFull() && best.size() > 0 ? best.worst().Resistance() : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * lowest resistance first, then lightest, then a fixed order by size
+     * and wire so that the answer never depends on which thread found what
+     */
+    private static int compare(CoilResult a, CoilResult b) {
+        int c = Float.compare(a.Resistance(), b.Resistance());
+        if (c == 0) c = Float.compare(a.Weight(), b.Weight());
+        if (c == 0) c = Float.compare(a.Geometry().OD(), b.Geometry().OD());
+        if (c == 0) c = Float.compare(a.Geometry().ID(), b.Geometry().ID());
+        if (c == 0) c = Float.compare(a.Geometry().Length(), b.Geometry().Length());
+        if (c == 0) c = Float.compare(a.Wire().CircularMils(), b.Wire().CircularMils());
+        if (c == 0) c = a.Wire().Name().compareTo(b.Wire().Name());
+        return c;
+    }
+}
@@ -0,0 +1,78 @@
+package coilsim;
+
+/**
+ * Class coilsim.CoilResult -
+ * Everything we work out about one coil design (a CoilGeometry wound
+ * with one size of CopperWire): how many turns fit,
+ * how much wire it takes, and the coil's inductance, resistance and weight.
+ * Produced by CoilCalculator. The object's properties cannot be modified,
+ * so results can be handed from one thread to another freely.
+ */
+
+public final class CoilResult {
+    private final CoilGeometry m_geometry;  // size of the coil
+    private final CopperWire m_wire;        // wire it is wound with
+    private final int m_nTurnsPerLayer;     // turns
+    private final int m_nLayers;            // layers
+    private final float m_fWireLength;      // meters
+    private final float m_fInductance;      // mH
+    private final float m_fResistance;      // ohms
+    private final float m_fWeight;          // kg
+
+    CoilResult(CoilGeometry geometry, CopperWire wire, int nTurnsPerLayer, int nLayers, float fWireLength,
+               float fInductance, float fResistance, float fWeight) {
+        m_geometry = geometry;
+        m_wire = wire;
+        m_nTurnsPerLayer = nTurnsPerLayer;
+        m_nLayers = nLayers;
+        m_fWireLength = fWireLength;
+        m_fInductance = fInductance;
+        m_fResistance = fResistance;
+        m_fWeight = fWeight;
+    }
+
+    /**
+     * @return the size of the coil
+     */
+    public CoilGeometry Geometry()      { return m_geometry; }
+
+    /**
+     * @return the wire size this coil is wound with
+     */
+    public CopperWire Wire()            { return m_wire; }
+
+    /**
+     * @return number of turns side by side in one layer
+     */
+    public int TurnsPerLayer()          { return m_nTurnsPerLayer; }
+
+    /**
+     * @return number of layers wound on top of each other
+     */
+    public int Layers()                 { return m_nLayers; }
+
+    /**
+     * @return total number of turns in the coil
+     */
+    public int TotalTurns()             { return m_nTurnsPerLayer * m_nLayers; }
+
+    /**
+     * @return length of wire needed to wind the coil (meters)
+     */
+    public float WireLength()           { return m_fWireLength; }
+
+    /**
+     * @return inductance of the coil (millihenries)
+     */
+    public float Inductance()           { return m_fInductance; }
+
+    /**
+     * @return resistance of the coil at 20C (ohms)
+     */
+    public float Resistance()           { return m_fResistance; }
+
+    /**
+     * @return weight of the copper (kg)
+     */
+    public float Weight()               { return m_fWeight; }
+}
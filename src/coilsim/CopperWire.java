@@ -11,19 +11,14 @@ package coilsim;
 
 public class CopperWire {
 	// description of the wire
-	private String m_sName;			    // Size as string format, e.g. "6 AWG"
-	private float m_fCircularMils;		// cross-sectional area (mm sq)
-	private float m_fDiameter;			// nominal size (mm)
-    private static int m_nType = 1;     // 1=awg, 2=swg, 3=metric
-    public static final int NumberOfGauges = 3;
-
-    public static int NumberOfSizes;    // How many wire sizes do we know about?
-                                        // This tells the caller how times they
-                                        // need to iterate our list to fetch them all.
+	private final String m_sName;		// Size as string format, e.g. "6 AWG"
+	private final float m_fCircularMils;	// cross-sectional area (mm sq)
+	private final float m_fDiameter;		// nominal size (mm)
+    public static final int NumberOfGauges = 3;     // awg, swg, metric
 
     /**
      * constructor
-     * Made "protected" to force you to use the class factory method "initialize"
+     * Made "protected" to force you to use the catalog, see WireCatalog
      *
      * @param sSize string representing the wire size, e.g. "6 AWG" or "1.0mm"
      * @param fCircularMils (circular mils)
@@ -35,10 +30,10 @@ public class CopperWire {
         m_fDiameter = fDiameter;
     }
 
-    private static CopperWire[] initAWG() {
-        NumberOfSizes = 29;
-        m_nType = 1;
-        CopperWire[] wire = new CopperWire[NumberOfSizes];
+    // The tables below are built just once each, by WireCatalog
+
+    static CopperWire[] buildAWG() {
+        CopperWire[] wire = new CopperWire[29];
         // Data from WireTron Corp., http://www.wiretron.com, June 2003
         //                                  (circ mils)      (mm)
         //                         sSize,   fCircularMils, fDiameter
@@ -74,10 +69,8 @@ public class CopperWire {
         return wire;
     }
 
-    private static CopperWire[] initSWG() {
-        NumberOfSizes = 29;
-        m_nType = 2;            // 2 = SWG
-        CopperWire[] wire = new CopperWire[NumberOfSizes];
+    static CopperWire[] buildSWG() {
+        CopperWire[] wire = new CopperWire[29];
         // Data from Standard Transformer Corp, Chicago, 1952
         //                                  (circ mils)    (mm)
         //                         sSize,   fCircularMils, fDiameter
@@ -113,10 +106,8 @@ public class CopperWire {
         return wire;
     }
 
-    private static CopperWire[] initMetric() {
-        NumberOfSizes = 37;
-        m_nType = 3;            // 3 = metric
-        CopperWire[] wire = new CopperWire[NumberOfSizes];
+    static CopperWire[] buildMetric() {
+        CopperWire[] wire = new CopperWire[37];
         //                                  (circ mils)    (mm)
         //                         sSize,   fCircularMils, fDiameter
         wire[ 0] = new CopperWire( "3.35 mm", 17390.F,      3.4350F);
@@ -159,34 +150,16 @@ public class CopperWire {
         return wire;
     }
 
-    /**
-     * coilsim.CopperWire factory - use this instead of ctor!
-     * @return the wire size
-     */
-    public static CopperWire[] initialize() {
-        return initAWG();
-    }
-
-    /**
-     * coilsim.CopperWire factory method - Rotates through AWG -> SWG -> mm -> AWG
-     * @return an object representing wire size
-     */
-    public static CopperWire[] nextGaugeType() {
-        CopperWire[] newWire;
-        switch (m_nType) {
-            case 1:  newWire = initSWG();    break;
-            case 2:  newWire = initMetric(); break;
-            case 3:  newWire = initAWG();    break;
-            default: newWire = initAWG();    break;
-        }
-        return newWire;
-    }
-
 	/**
 	 * @return wire	size in "American Wire Gauge" (AWG) or as a String
 	 */
 	public String Name()			{ return m_sName; }
 
+	/**
+	 * @return resistance of one meter of this wire (ohms) at 20C
+	 */
+	public float ResistancePerMeter()	{ return Resistance(1.F); }
+
 	/**
 	 * @return maximum recommended steady-state	safe current rating in amps
 	 */
@@ -18,6 +18,8 @@ package coilsim;/*
 
 import java.awt.*;
 import java.awt.event.ItemEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 public class InductorSim9 extends java.applet.Applet {
 
@@ -29,8 +31,8 @@ public class InductorSim9 extends java.applet.Applet {
     private float m_fID = MAX_OD_SIZE_SMALL*5/10;   // coil inside diameter (mm)
     private float m_fLength = 35;                   // coil length (mm)
 
-    // array of wire sizes that we know about (AWG 6...28)
-    CopperWire[] wire = CopperWire.initialize();
+    // wire sizes that we know about (AWG 4...32 to start with)
+    WireCatalog wire = WireCatalog.forType(WireCatalog.AWG);
 
     // helper class for formatting numbers
     private Nearest nearest = new Nearest();
@@ -41,6 +43,14 @@ public class InductorSim9 extends java.applet.Applet {
     private int m_nOffsetX;             // units are "canvas pixels"
     private int m_nOffsetY;
 
+    // the pictures are drawn off-screen, and only drawn again when what they
+    // show changes; a repaint that only changed a label just copies them
+    private BufferedImage m_backgroundImage;    // the whole applet: color and borders
+    private Rectangle m_backgroundKey;          // output area the background was drawn for
+    private BufferedImage m_coilImage;          // the coil, on a transparent canvas-sized image
+    private float[] m_coilKey;                  // everything the coil picture depends on
+    private int m_nCoilMargin;                  // pixels around the canvas, for tick marks poking out
+
     // constants for coil dimensions
     static private final int MAX_ID_SIZE_SMALL =  90;
     static private final int MAX_OD_SIZE_SMALL = 100;
@@ -90,37 +100,18 @@ public class InductorSim9 extends java.applet.Applet {
     public void recalculateEverything() {
         // Look at UI to see which type of wire is selected
         int index = listBoxWireSize.getSelectedIndex();
-        //System.out.println( "Selected index is " + index + " for wire size " + wire[index].Name() );
-        CopperWire w = wire[index];
-
-        // Calculate physical characteristics (number of turns, length)
-        int nTurnsPerLayer = (int)(m_fLength / w.Diameter());
-        int nNumberOfLayers = (int)((m_fOD - m_fID) / 2.F / w.Diameter());
-        int nTotalTurns = nTurnsPerLayer * nNumberOfLayers;
-        float fWireLength = (float)(Math.PI * (m_fOD + m_fID)/2.F * nTotalTurns / 1000.F); // meters
-
-        // Calculate electrical characteristics (mH, ohms)
-        // Use standard approximation for multilayer coil
-        //            0.8(N * A)^2
-        //    L = --------------------- (microhenries)
-        //         (6A) + (9B) + (10C)
-        // where:
-        //    N = number of turns
-        //    A = avg coil radius = tube radius + half of coil thickness (inches)
-        //    B = coil length (inches)
-        //    C = coil thickness (inches)
-        // (Don't use Wheeler's Formula for Inductance because it's for a spiral wound coil)
-        // @see http://www.icorp.net/users/kev/tesla/form.txt
-        //    L(uH) = (r^2) * (N^2) / (9*r + 10*h)
-        float A = (m_fOD + m_fID) / 2.F / 2.F * INCHES_PER_MM;	// inches
-        float B = m_fLength * INCHES_PER_MM;                    // inches
-        float C = (m_fOD - m_fID) / 2.F * INCHES_PER_MM;        // inches
-        float N = nTotalTurns;                                  // turns
-        float fInductance = 0.8F * N * N * A * A
-                          / (6.F*A + 9.F*B +10.F*C) / 1000.F;   // mH
-
-        float fResistance = w.Resistance(fWireLength);		// ohms
-        float fWireWeight = w.Weight(fWireLength);		// kg
+        //System.out.println( "Selected index is " + index + " for wire size " + wire.get(index).Name() );
+        CopperWire w = wire.get(index);
+
+        // Calculate physical and electrical characteristics (turns, length, mH, ohms)
+        CoilResult coil = CoilCalculator.calculate(m_fOD, m_fID, m_fLength, w);
+        int nTurnsPerLayer = coil.TurnsPerLayer();
+        int nNumberOfLayers = coil.Layers();
+        int nTotalTurns = coil.TotalTurns();
+        float fWireLength = coil.WireLength();      // meters
+        float fInductance = coil.Inductance();      // mH
+        float fResistance = coil.Resistance();      // ohms
+        float fWireWeight = coil.Weight();          // kg
 
         // Update output section of UI with these computed values
         labelWindingDensityValue.setText( nearest.Tenth(w.WindingDensity()) + " turns/cm");
@@ -186,13 +177,62 @@ public class InductorSim9 extends java.applet.Applet {
     }
 
     /**
-     * Draw a stylized coil, with the current dimensions
+     * Draw a stylized coil, with the current dimensions.
+     * Both the background and the coil come from images drawn earlier,
+     * unless the size, the coil or the wire has changed since.
      *
      * @param g handle to graphics
      */
     public void paint(Graphics g) {
-        paintBackground(g);
-        paintCoil(g);
+        int nWidth = (getWidth() > 0) ? getWidth() : appletSize.width;
+        int nHeight = (getHeight() > 0) ? getHeight() : appletSize.height;
+        Rectangle outputArea = canvas2.getBounds();
+        if (m_backgroundImage == null || m_backgroundImage.getWidth() != nWidth
+                || m_backgroundImage.getHeight() != nHeight || !outputArea.equals(m_backgroundKey)) {
+            m_backgroundImage = new BufferedImage(nWidth, nHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D gImage = m_backgroundImage.createGraphics();
+            gImage.setColor(getBackground());
+            gImage.fillRect(0, 0, nWidth, nHeight);
+            gImage.setColor(getForeground());
+            paintBackground(gImage);
+            gImage.dispose();
+            m_backgroundKey = outputArea;
+        }
+
+        Rectangle rCanvas = canvas1.getBounds();
+        float[] key = { m_fOD, m_fID, m_fLength, wire.get(listBoxWireSize.getSelectedIndex()).Diameter(),
+                        fScaleX, fScaleY, VScrollBarOD.getMaximum() - VScrollBarOD.getVisibleAmount(),
+                        rCanvas.width, rCanvas.height };
+        if (m_coilImage == null || !Arrays.equals(key, m_coilKey)) {
+            // the tick marks stick out 3 mm above and below the coil
+            m_nCoilMargin = (int)Math.ceil(3 * Math.max(fScaleX, fScaleY)) + 2;
+            int nImageWidth = rCanvas.width + 2*m_nCoilMargin;
+            int nImageHeight = rCanvas.height + 2*m_nCoilMargin;
+            if (m_coilImage == null || m_coilImage.getWidth() != nImageWidth || m_coilImage.getHeight() != nImageHeight)
+                m_coilImage = new BufferedImage(nImageWidth, nImageHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D gImage = m_coilImage.createGraphics();
+            gImage.setComposite(AlphaComposite.Clear);
+            gImage.fillRect(0, 0, nImageWidth, nImageHeight);
+            gImage.setComposite(AlphaComposite.SrcOver);
+            gImage.setColor(getForeground());
+            gImage.translate(m_nCoilMargin - rCanvas.x, m_nCoilMargin - rCanvas.y);
+            paintCoil(gImage);
+            gImage.dispose();
+            m_coilKey = key;
+        }
+
+        g.drawImage(m_backgroundImage, 0, 0, null);
+        g.drawImage(m_coilImage, rCanvas.x - m_nCoilMargin, rCanvas.y - m_nCoilMargin, null);
+    }
+
+    /**
+     * The background image covers the whole applet, so there's no need to
+     * clear it first; skipping that stops the flicker.
+     *
+     * @param g handle to graphics
+     */
+    public void update(Graphics g) {
+        paint(g);
     }
 
     /**
@@ -341,7 +381,7 @@ public class InductorSim9 extends java.applet.Applet {
         // add small arcs to indicate the first few wires
         // compute actual pitch from wire size
         int wireIndex = listBoxWireSize.getSelectedIndex();
-        float wireDiameter = wire[wireIndex].Diameter();
+        float wireDiameter = wire.get(wireIndex).Diameter();
 
         // how many arcs to draw? it should be limited to the number that fit inside the coil's image
         int nTurnsPerLayer = (int)(m_fLength / wireDiameter);
@@ -480,7 +520,7 @@ public class InductorSim9 extends java.applet.Applet {
         initWireListbox();
 
         // Initialize some middle-of-the-range values for a starting coil
-        listBoxWireSize.select(CopperWire.NumberOfSizes / 2);
+        listBoxWireSize.select(wire.size() / 2);
         VScrollBarOD.setValue( MAX_OD_SIZE_SMALL*75/100 );
         VScrollBarID.setValue( MAX_OD_SIZE_SMALL*5/10 );
         HScrollBarLength.setValues( 35,     // initial position (pixels)
@@ -525,11 +565,11 @@ public class InductorSim9 extends java.applet.Applet {
     private void initWireListbox() {
         // Populate the Wire Size (AWG,SWG,metric) listbox
         listBoxWireSize.removeAll();
-        for (int ii=0; ii<CopperWire.NumberOfSizes; ii++) {
-            listBoxWireSize.add( wire[ii].Name());
+        for (int ii=0; ii<wire.size(); ii++) {
+            listBoxWireSize.add( wire.get(ii).Name());
         }
         // Select the middle entry in the list
-        listBoxWireSize.select(CopperWire.NumberOfSizes/2);
+        listBoxWireSize.select(wire.size()/2);
     }
 
     /** This method is called from within the init() method to
@@ -825,7 +865,7 @@ public class InductorSim9 extends java.applet.Applet {
 
     private void buttonNextWireActionPerformed(java.awt.event.ActionEvent evt) {
         // Cycle through AWG - SWG - metric wire sizes
-        wire = CopperWire.nextGaugeType();
+        wire = wire.next();
         initWireListbox();
         recalculateEverything();
     }
@@ -0,0 +1,205 @@
+package coilsim;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class coilsim.ParetoFront -
+ * The coils that are not beaten on every count by some other coil. We want
+ * lots of inductance, but little resistance, little copper and a short
+ * length of wire; a coil is "dominated" if another one is at least as good
+ * in all four and better in at least one. What's left is the Pareto front:
+ * every one of them is the best you can do for some trade-off.
+ *
+ * The front is kept up to date one coil at a time. It is sorted by
+ * resistance, so a new coil only has to be compared against the coils
+ * with less resistance (any of which might beat it), and then against the
+ * coils with more resistance (any of which it might beat). Most coils are
+ * thrown out by the first few comparisons, without ever rebuilding the
+ * whole front.
+ *
+ * A front is not thread-safe: give each thread its own and merge them
+ * (see ParetoSearch).
+ */
+
+public final class ParetoFront {
+    // the objectives, for axes and columns
+    public static final int INDUCTANCE = 0;     // mH, more is better
+    public static final int RESISTANCE = 1;     // ohms, less is better
+    public static final int WEIGHT = 2;         // kg, less is better
+    public static final int WIRE_LENGTH = 3;    // meters, less is better
+    public static final int NumberOfObjectives = 4;
+
+    static private final String CSV_HEADER =
+        "od_mm,id_mm,length_mm,gauge,turns,wire_meters,millihenries,ohms,kg";
+
+    // the front, sorted by resistance; the objectives are copied out of the
+    // coils into arrays of their own, so the comparisons stay in the cache
+    private CoilResult[] m_coil = new CoilResult[64];
+    private float[] m_ohms = new float[64];
+    private float[] m_negInductance = new float[64];   // -mH, so that less is better for all
+    private float[] m_kg = new float[64];
+    private float[] m_meters = new float[64];
+    private int m_nCount;
+
+    /**
+     * Offer a coil to the front. If nothing in the front is as good in every
+     * way, the coil goes in, and any coils it beats come out.
+     *
+     * @return true if the coil went in
+     */
+    public boolean offer(CoilResult coil) {
+        float ohms = coil.Resistance();
+        float negL = -coil.Inductance();
+        float kg = coil.Weight();
+        float meters = coil.WireLength();
+
+        // anything that beats us has no more resistance than we do
+        int upper = firstAbove(ohms);
+        for (int ii=0; ii<upper; ii++) {
+            if (m_negInductance[ii] <= negL && m_kg[ii] <= kg && m_meters[ii] <= meters)
+                return false;
+        }
+
+        // anything we beat has no less resistance than we do; squeeze them out
+        int lower = firstAtLeast(ohms, upper);
+        int kept = lower;
+        for (int ii=lower; ii<m_nCount; ii++) {
+            boolean beaten = negL <= m_negInductance[ii] && kg <= m_kg[ii] && meters <= m_meters[ii];
+            if (!beaten) {
+                move(ii, kept);
+                kept++;
+            }
+        }
+        Arrays.fill(m_coil, kept, m_nCount, null);
+        m_nCount = kept;
+
+        // and in we go, after any with the same resistance
+        insert(firstAbove(ohms), coil, ohms, negL, kg, meters);
+        return true;
+    }
+
+    /**
+     * Offer every coil in another front to this one.
+     */
+    public void merge(ParetoFront other) {
+        for (int ii=0; ii<other.m_nCount; ii++) {
+            offer(other.m_coil[ii]);
+        }
+    }
+
+    /**
+     * @return how many coils are in the front
+     */
+    public int size()                   { return m_nCount; }
+
+    /**
+     * @return coil number 'index', in order of resistance
+     */
+    public CoilResult get(int index)    { return m_coil[index]; }
+
+    /**
+     * @return the front, in order of resistance
+     */
+    public CoilResult[] toArray() {
+        CoilResult[] result = new CoilResult[m_nCount];
+        System.arraycopy(m_coil, 0, result, 0, m_nCount);
+        return result;
+    }
+
+    /**
+     * @param coil = any coil
+     * @param objective = INDUCTANCE, RESISTANCE, WEIGHT or WIRE_LENGTH
+     * @return the coil's value of that objective, in its own units
+     */
+    public static float value(CoilResult coil, int objective) {
+        switch (objective) {
+            case INDUCTANCE: return coil.Inductance();
+            case RESISTANCE: return coil.Resistance();
+            case WEIGHT:     return coil.Weight();
+            default:         return coil.WireLength();
+        }
+    }
+
+    /**
+     * Write the front as CSV, one line per coil, as it goes; e.g. to a
+     * BufferedWriter on a file, or System.out.
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append(CSV_HEADER).append('\n');
+        StringBuilder sb = new StringBuilder(120);
+        for (int ii=0; ii<m_nCount; ii++) {
+            CoilResult c = m_coil[ii];
+            sb.setLength(0);
+            sb.append(c.Geometry().OD()).append(',')
+              .append(c.Geometry().ID()).append(',')
+              .append(c.Geometry().Length()).append(',')
+              .append(c.Wire().Name().replace("  ", " ")).append(',')
+              .append(c.TotalTurns()).append(',')
+              .append(c.WireLength()).append(',')
+              .append(c.Inductance()).append(',')
+              .append(c.Resistance()).append(',')
+              .append(c.Weight()).append('\n');
+            out.append(sb);
+        }
+    }
+
+    // index of the first coil with more resistance than 'ohms'
+    private int firstAbove(float ohms) {
+        int lo = 0, hi = m_nCount;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (m_ohms[middle] <= ohms)
+                lo = middle + 1;
+            else
+                hi = middle;
+        }
+        return lo;
+    }
+
+    // index of the first coil with at least 'ohms', no later than 'upper'
+    private int firstAtLeast(float ohms, int upper) {
+        int lo = 0, hi = upper;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (m_ohms[middle] < ohms)
+                lo = middle + 1;
+            else
+                hi = middle;
+        }
+        return lo;
+    }
+
+    private void move(int from, int to) {
+        if (from == to)
+            return;
+        m_coil[to] = m_coil[from];
+        m_ohms[to] = m_ohms[from];
+        m_negInductance[to] = m_negInductance[from];
+        m_kg[to] = m_kg[from];
+        m_meters[to] = m_meters[from];
+    }
+
+    private void insert(int index, CoilResult coil, float ohms, float negL, float kg, float meters) {
+        if (m_nCount == m_coil.length) {
+            int nSize = m_coil.length * 2;
+            m_coil = Arrays.copyOf(m_coil, nSize);
+            m_ohms = Arrays.copyOf(m_ohms, nSize);
+            m_negInductance = Arrays.copyOf(m_negInductance, nSize);
+            m_kg = Arrays.copyOf(m_kg, nSize);
+            m_meters = Arrays.copyOf(m_meters, nSize);
+        }
+        int nMove = m_nCount - index;
+        System.arraycopy(m_coil, index, m_coil, index + 1, nMove);
+        System.arraycopy(m_ohms, index, m_ohms, index + 1, nMove);
+        System.arraycopy(m_negInductance, index, m_negInductance, index + 1, nMove);
+        System.arraycopy(m_kg, index, m_kg, index + 1, nMove);
+        System.arraycopy(m_meters, index, m_meters, index + 1, nMove);
+        m_coil[index] = coil;
+        m_ohms[index] = ohms;
+        m_negInductance[index] = negL;
+        m_kg[index] = kg;
+        m_meters[index] = meters;
+        m_nCount++;
+    }
+}
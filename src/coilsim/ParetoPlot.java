@@ -0,0 +1,199 @@
+package coilsim;
+
+import java.awt.*;
+import java.awt.event.ItemEvent;
+import java.awt.event.ItemListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+/**
+ * Class coilsim.ParetoPlot -
+ * Scatter plot of a ParetoFront, any objective against any other, e.g.
+ * inductance (up) against resistance (across). Each coil is a dot, coloured
+ * by wire size from thick (blue) to thin (red), so you can see which
+ * gauges make up which part of the front.
+ *
+ * Typical usage, in a Frame of its own:
+ *    ParetoPlot plot = new ParetoPlot();
+ *    plot.setFront(search.search().toArray(), ParetoFront.RESISTANCE, ParetoFront.INDUCTANCE);
+ *    frame.add(plot);
+ *
+ * or from the command line, which searches and shows the front in a Frame
+ * with a choice of axes (default AWG wire, OD 10-60, ID 5-40, length 10-80 mm):
+ *    java coilsim.ParetoPlot [awg|swg|metric|all minOD maxOD minID maxID minLength maxLength]
+ */
+
+public class ParetoPlot extends Canvas {
+    static private final int MARGIN = 40;       // pixels around the plot, for the labels
+    static private final int DOT = 4;           // pixels across
+
+    private CoilResult[] m_points = new CoilResult[0];
+    private int m_nAxisX = ParetoFront.RESISTANCE;
+    private int m_nAxisY = ParetoFront.INDUCTANCE;
+
+    // range of the data, worked out once per front
+    private float m_fMinX, m_fMaxX, m_fMinY, m_fMaxY;
+    private float m_fMinMils, m_fMaxMils;
+
+    // helper class for formatting numbers
+    private Nearest nearest = new Nearest();
+
+    public ParetoPlot() {
+        setBackground(Color.white);
+        setPreferredSize(new Dimension(480, 360));
+    }
+
+    /**
+     * @param points = coils to plot, e.g. ParetoFront.toArray()
+     * @param nAxisX = objective across, e.g. ParetoFront.RESISTANCE
+     * @param nAxisY = objective up, e.g. ParetoFront.INDUCTANCE
+     */
+    public void setFront(CoilResult[] points, int nAxisX, int nAxisY) {
+        m_points = points.clone();
+        m_nAxisX = nAxisX;
+        m_nAxisY = nAxisY;
+
+        m_fMinX = m_fMinY = m_fMinMils = Float.POSITIVE_INFINITY;
+        m_fMaxX = m_fMaxY = m_fMaxMils = Float.NEGATIVE_INFINITY;
+        for (int ii=0; ii<m_points.length; ii++) {
+            float x = ParetoFront.value(m_points[ii], nAxisX);
+            float y = ParetoFront.value(m_points[ii], nAxisY);
+            float mils = m_points[ii].Wire().CircularMils();
+            m_fMinX = Math.min(m_fMinX, x);     m_fMaxX = Math.max(m_fMaxX, x);
+            m_fMinY = Math.min(m_fMinY, y);     m_fMaxY = Math.max(m_fMaxY, y);
+            m_fMinMils = Math.min(m_fMinMils, mils);
+            m_fMaxMils = Math.max(m_fMaxMils, mils);
+        }
+        repaint();
+    }
+
+    public void paint(Graphics g) {
+        Dimension size = getSize();
+        int left = MARGIN;
+        int right = size.width - MARGIN/2;
+        int top = MARGIN/2;
+        int bottom = size.height - MARGIN;
+
+        // axes
+        g.setColor(Color.black);
+        g.drawLine(left, bottom, right, bottom);
+        g.drawLine(left, bottom, left, top);
+        g.drawString(axisName(m_nAxisX), (left + right)/2 - 20, size.height - 6);
+        g.drawString(axisName(m_nAxisY), 4, top - 4 + 12);
+        if (m_points.length == 0)
+            return;
+
+        // range of the data; if it is all one value, that goes at the bottom left
+        float spanX = (m_fMaxX > m_fMinX) ? m_fMaxX - m_fMinX : Math.max(m_fMaxX, 1E-6F);
+        float spanY = (m_fMaxY > m_fMinY) ? m_fMaxY - m_fMinY : Math.max(m_fMaxY, 1E-6F);
+        float spanMils = (m_fMaxMils > m_fMinMils) ? m_fMaxMils - m_fMinMils : 1.F;
+        g.drawString(label(m_fMinX, m_nAxisX), left, bottom + 14);
+        g.drawString(label(m_fMaxX, m_nAxisX), right - 40, bottom + 14);
+        g.drawString(label(m_fMaxY, m_nAxisY), left + 4, top + 10);
+
+        // dots
+        float scaleX = (right - left - DOT) / spanX;
+        float scaleY = (bottom - top - DOT) / spanY;
+        for (int ii=0; ii<m_points.length; ii++) {
+            float x = ParetoFront.value(m_points[ii], m_nAxisX);
+            float y = ParetoFront.value(m_points[ii], m_nAxisY);
+            float thick = (m_points[ii].Wire().CircularMils() - m_fMinMils) / spanMils;
+            g.setColor(new Color(1.F - thick, 0.F, thick));
+            g.fillRect(left + (int)((x - m_fMinX) * scaleX),
+                       bottom - DOT - (int)((y - m_fMinY) * scaleY), DOT, DOT);
+        }
+    }
+
+    /**
+     * Search for the front and show it in a Frame of its own. The search runs
+     * on a thread of its own, so the window comes up at once.
+     */
+    public static void main(String[] args) {
+        final int[] range = { 10, 60, 5, 40, 10, 80 };     // OD, ID, length (mm)
+        WireCatalog catalog = WireCatalog.forType(WireCatalog.AWG);
+        if (args.length > 0) {
+            catalog = (args.length == 7) ? WireCatalog.forName(args[0]) : null;
+            try {
+                for (int ii=0; catalog != null && ii<range.length; ii++) {
+                    range[ii] = Integer.parseInt(args[ii + 1]);
+                }
+            } catch (NumberFormatException e) {
+                catalog = null;
+            }
+            if (catalog == null) {
+                System.err.println("usage: java coilsim.ParetoPlot [awg|swg|metric|all minOD maxOD minID maxID minLength maxLength]");
+                System.exit(2);
+            }
+        }
+
+        final Frame frame = new Frame("Pareto front - searching...");
+        final ParetoPlot plot = new ParetoPlot();
+        final Choice choiceX = axisChoice(ParetoFront.RESISTANCE);
+        final Choice choiceY = axisChoice(ParetoFront.INDUCTANCE);
+        Panel axes = new Panel(new FlowLayout(FlowLayout.LEFT));
+        axes.add(new Label("Across"));
+        axes.add(choiceX);
+        axes.add(new Label("Up"));
+        axes.add(choiceY);
+        frame.add(axes, BorderLayout.NORTH);
+        frame.add(plot, BorderLayout.CENTER);
+        frame.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                frame.dispose();
+            }
+        });
+        frame.pack();
+        frame.setVisible(true);
+
+        final ParetoSearch search = new ParetoSearch(catalog, range[0], range[1], range[2], range[3], range[4], range[5]);
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                final CoilResult[] front = search.search().toArray();
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        frame.setTitle("Pareto front - " + front.length + " of " + search.getEvaluated() + " coils");
+                        plot.setFront(front, choiceX.getSelectedIndex(), choiceY.getSelectedIndex());
+                        ItemListener axisChanged = new ItemListener() {
+                            public void itemStateChanged(ItemEvent e) {
+                                plot.setFront(front, choiceX.getSelectedIndex(), choiceY.getSelectedIndex());
+                            }
+                        };
+                        choiceX.addItemListener(axisChanged);
+                        choiceY.addItemListener(axisChanged);
+                    }
+                });
+            }
+        }, "ParetoSearch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // a Choice of every objective, in ParetoFront order so the index is the objective
+    private static Choice axisChoice(int nSelected) {
+        Choice choice = new Choice();
+        for (int ii=0; ii<ParetoFront.NumberOfObjectives; ii++) {
+            choice.add(axisName(ii));
+        }
+        choice.select(nSelected);
+        return choice;
+    }
+
+    private static String axisName(int nAxis) {
+        switch (nAxis) {
+            case ParetoFront.INDUCTANCE: return "Inductance";
+            case ParetoFront.RESISTANCE: return "Resistance";
+            case ParetoFront.WEIGHT:     return "Weight";
+            default:                     return "Wire length";
+        }
+    }
+
+    // value with engineering units, e.g. "2.5 mH", "120 g"
+    private String label(float value, int nAxis) {
+        switch (nAxis) {
+            case ParetoFront.INDUCTANCE: return nearest.toStringEng(value / 1000., 2, "H");
+            case ParetoFront.RESISTANCE: return nearest.toStringEng(value, 2, "ohms");
+            case ParetoFront.WEIGHT:     return nearest.toStringEng(value * 1000., 2, "g");
+            default:                     return nearest.toStringEng(value, 2, "m");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package coilsim;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class coilsim.ParetoSearch -
+ * Calculates every coil in a range of OD, ID and length (in whole mm, like
+ * the scrollbars) wound with every wire size in a WireCatalog, and keeps
+ * the ParetoFront of inductance against resistance, copper weight and wire
+ * length. InductorSim9 shows one coil at a time; this shows all of the
+ * coils worth considering.
+ *
+ * The ODs are shared out among all processors with fork/join. Every task
+ * keeps a front of its own; the fronts are merged as the tasks finish, in
+ * the same order every time, so the answer doesn't depend on the number of
+ * threads.
+ *
+ * Typical usage:
+ *    ParetoSearch search = new ParetoSearch(WireCatalog.forType(WireCatalog.AWG), 10, 60, 5, 40, 10, 80);
+ *    ParetoFront front = search.search();
+ *    front.writeCsv(new BufferedWriter(new FileWriter("front.csv")));
+ */
+
+public final class ParetoSearch {
+    // search space (mm)
+    private final WireCatalog m_catalog;
+    private final int m_nMinOD, m_nMaxOD;
+    private final int m_nMinID, m_nMaxID;
+    private final int m_nMinLength, m_nMaxLength;
+
+    // statistics of the last search
+    private long m_nEvaluated;
+
+    /**
+     * @param catalog = every wire size to try
+     * @param nMinOD, nMaxOD = range of outside diameter (mm)
+     * @param nMinID, nMaxID = range of inside diameter (mm)
+     * @param nMinLength, nMaxLength = range of coil length (mm)
+     */
+    public ParetoSearch(WireCatalog catalog, int nMinOD, int nMaxOD, int nMinID, int nMaxID,
+                        int nMinLength, int nMaxLength) {
+        m_catalog = catalog;
+        m_nMinOD = nMinOD;
+        m_nMaxOD = nMaxOD;
+        m_nMinID = nMinID;
+        m_nMaxID = nMaxID;
+        m_nMinLength = nMinLength;
+        m_nMaxLength = nMaxLength;
+    }
+
+    /**
+     * @return how many coils were calculated during the last search
+     */
+    public long getEvaluated() {
+        return m_nEvaluated;
+    }
+
+    /**
+     * Search, using all processors.
+     * @return the coils that nothing else beats
+     */
+    public ParetoFront search() {
+        return search(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Search, using the given pool of threads.
+     * @return the coils that nothing else beats
+     */
+    public ParetoFront search(ForkJoinPool pool) {
+        LongAdder nEvaluated = new LongAdder();
+        ParetoFront front = pool.invoke(new SearchTask(nEvaluated, m_nMinOD, m_nMaxOD + 1));
+        m_nEvaluated = nEvaluated.sum();
+        return front;
+    }
+
+    //----------------------------------------------------------------------
+    //           SearchTask
+    //----------------------------------------------------------------------
+    /**
+     * helper class searches a range of ODs, splitting it in half
+     * until there is only one OD left
+     */
+    private final class SearchTask extends RecursiveTask<ParetoFront> {
+        private final LongAdder m_nEvaluated;
+        private final int m_nFirstOD;
+        private final int m_nLastOD;        // exclusive
+
+        SearchTask(LongAdder nEvaluated, int nFirstOD, int nLastOD) {
+            m_nEvaluated = nEvaluated;
+            m_nFirstOD = nFirstOD;
+            m_nLastOD = nLastOD;
+        }
+
+        protected ParetoFront compute() {
+            if (m_nLastOD - m_nFirstOD > 1) {
+                int middle = (m_nFirstOD + m_nLastOD) >>> 1;
+                SearchTask left = new SearchTask(m_nEvaluated, m_nFirstOD, middle);
+                SearchTask right = new SearchTask(m_nEvaluated, middle, m_nLastOD);
+                left.fork();
+                ParetoFront rightFront = right.compute();
+                ParetoFront front = left.join();
+                front.merge(rightFront);
+                return front;
+            }
+
+            ParetoFront front = new ParetoFront();
+            int od = m_nFirstOD;
+            int nMaxID = Math.min(m_nMaxID, od - 1);
+            long nEvaluated = 0;
+            for (int id=m_nMinID; id<=nMaxID; id++) {
+                for (int w=0; w<m_catalog.size(); w++) {
+                    CopperWire wire = m_catalog.get(w);
+                    if ((int)((od - id) / 2.F / wire.Diameter()) <= 0)
+                        continue;                   // wire is too thick for the winding space
+                    for (int len=m_nMinLength; len<=m_nMaxLength; len++) {
+                        if ((int)(len / wire.Diameter()) <= 0)
+                            continue;               // not even one turn
+                        front.offer(CoilCalculator.calculate(od, id, len, wire));
+                        nEvaluated++;
+                    }
+                }
+            }
+            m_nEvaluated.add(nEvaluated);
+            return front;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package coilsim;
+
+import java.util.Comparator;
+import java.util.function.IntFunction;
+
+/**
+ * Class coilsim.TopK -
+ * Keeps the best K of whatever it is offered, in order, best first; "best"
+ * is whatever sorts first by the Comparator. K is expected to be small (a
+ * few dozen at most), so this is just an insertion sort into a fixed array,
+ * which beats a heap at that size and keeps the list in order for free.
+ *
+ * Make the comparator a total order, breaking ties on something fixed such
+ * as size and wire, and the answer never depends on the order the items
+ * were offered in. Then searches that keep one list per thread and merge
+ * them at the end (see CoilOptimizer, rlc.CoilSweep) give the same answer
+ * on any number of threads.
+ *
+ * A list is not thread-safe: give each thread its own and merge them.
+ */
+
+public final class TopK<T> {
+    private final Object[] m_best;
+    private final Comparator<? super T> m_comparator;
+    private int m_nCount;
+
+    /**
+     * @param nSize = K, how many to keep
+     * @param comparator = less than zero if the first argument is better
+     */
+    public TopK(int nSize, Comparator<? super T> comparator) {
+        m_best = new Object[nSize];
+        m_comparator = comparator;
+    }
+
+    /**
+     * @return how many are in the list, at most K
+     */
+    public int size()                   { return m_nCount; }
+
+    /**
+     * @return true if the list holds K already
+     */
+    public boolean isFull()             { return m_nCount == m_best.length; }
+
+    /**
+     * @return number 'index' in the list, 0 = the best
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index)             { return (T)m_best[index]; }
+
+    /**
+     * @return the worst one in the list, or null if it is empty
+     */
+    public T worst()                    { return (m_nCount == 0) ? null : get(m_nCount - 1); }
+
+    /**
+     * @return true if the item made it into the list
+     */
+    public boolean offer(T item) {
+        if (m_best.length == 0 || (isFull() && m_comparator.compare(item, get(m_nCount-1)) >= 0))
+            return false;
+
+        // insertion sort: K is small
+        int ii = isFull() ? m_nCount - 1 : m_nCount++;
+        while (ii > 0 && m_comparator.compare(item, get(ii-1)) < 0) {
+            m_best[ii] = m_best[ii-1];
+            ii--;
+        }
+        m_best[ii] = item;
+        return true;
+    }
+
+    /**
+     * Offer everything in another list to this one.
+     */
+    public void merge(TopK<? extends T> other) {
+        for (int ii=0; ii<other.m_nCount; ii++) {
+            offer(other.get(ii));
+        }
+    }
+
+    /**
+     * @param generator = makes an array of the right type, e.g. CoilResult[]::new
+     * @return the list, best first
+     */
+    public T[] toArray(IntFunction<T[]> generator) {
+        T[] result = generator.apply(m_nCount);
+        System.arraycopy(m_best, 0, result, 0, m_nCount);
+        return result;
+    }
+}
@@ -0,0 +1,234 @@
+package coilsim;
+
+import java.util.HashMap;
+
+/**
+ * Class coilsim.WireCatalog -
+ * Every size of copper wire in one gauge system (AWG, SWG or metric), or in
+ * all three at once. Each catalog is built exactly once, when this class is
+ * loaded, and can never change afterwards, so it can be shared by any number
+ * of threads without locking, and looked at as often as you like.
+ *
+ * Lookups:
+ * - get(index) in the catalog's own order (the order of the table, which
+ *   is also the order of the listbox in InductorSim9), constant time
+ * - find(name), e.g. "18 AWG" or "1.00mm", constant time
+ * - nearest size by diameter, circular mils, or resistance per meter,
+ *   by binary search of a pre-sorted index, O(log n)
+ */
+
+public final class WireCatalog {
+    // gauge systems, same numbering as the old CopperWire.m_nType
+    public static final int AWG = 1;
+    public static final int SWG = 2;
+    public static final int METRIC = 3;
+    public static final int ALL = 0;        // all three together
+
+    // the catalogs, built once
+    private static final WireCatalog s_awg = new WireCatalog(AWG, CopperWire.buildAWG());
+    private static final WireCatalog s_swg = new WireCatalog(SWG, CopperWire.buildSWG());
+    private static final WireCatalog s_metric = new WireCatalog(METRIC, CopperWire.buildMetric());
+    private static final WireCatalog s_all = new WireCatalog(ALL, s_awg, s_swg, s_metric);
+
+    private final int m_nType;
+    private final CopperWire[] m_wire;      // in table order
+
+    // indexes sorted by each key, for nearest-size lookups
+    private final float[] m_byDiameter;     // mm, ascending
+    private final int[] m_orderDiameter;    // m_wire index of each entry in m_byDiameter
+    private final float[] m_byMils;         // circular mils, ascending
+    private final int[] m_orderMils;
+    private final float[] m_byOhms;         // ohms per meter, ascending
+    private final int[] m_orderOhms;
+
+    private final HashMap<String, CopperWire> m_byName = new HashMap<String, CopperWire>();
+
+    private WireCatalog(int nType, CopperWire[] wire) {
+        m_nType = nType;
+        m_wire = wire;
+
+        m_orderDiameter = new int[wire.length];
+        m_orderMils = new int[wire.length];
+        m_orderOhms = new int[wire.length];
+        m_byDiameter = new float[wire.length];
+        m_byMils = new float[wire.length];
+        m_byOhms = new float[wire.length];
+        for (int ii=0; ii<wire.length; ii++) {
+            m_byDiameter[ii] = wire[ii].Diameter();
+            m_byMils[ii] = wire[ii].CircularMils();
+            m_byOhms[ii] = wire[ii].ResistancePerMeter();
+            m_byName.put(normalize(wire[ii].Name()), wire[ii]);
+        }
+        sortIndex(m_byDiameter, m_orderDiameter);
+        sortIndex(m_byMils, m_orderMils);
+        sortIndex(m_byOhms, m_orderOhms);
+    }
+
+    private WireCatalog(int nType, WireCatalog a, WireCatalog b, WireCatalog c) {
+        this(nType, concat(a.m_wire, b.m_wire, c.m_wire));
+    }
+
+    /**
+     * @param nType = AWG, SWG, METRIC or ALL
+     * @return the catalog for that gauge system
+     */
+    public static WireCatalog forType(int nType) {
+        switch (nType) {
+            case AWG:    return s_awg;
+            case SWG:    return s_swg;
+            case METRIC: return s_metric;
+            default:     return s_all;
+        }
+    }
+
+    /**
+     * @param sName = "awg", "swg", "metric" or "all", in any case, e.g. from a command line
+     * @return the catalog for that gauge system, or null if there's no such system
+     */
+    public static WireCatalog forName(String sName) {
+        switch (sName.toLowerCase()) {
+            case "awg":    return s_awg;
+            case "swg":    return s_swg;
+            case "metric": return s_metric;
+            case "all":    return s_all;
+            default:       return null;
+        }
+    }
+
+    /**
+     * @return every wire size in every gauge system
+     */
+    public static WireCatalog all() {
+        return s_all;
+    }
+
+    /**
+     * @return the next gauge system, rotating AWG -> SWG -> mm -> AWG,
+     * like the button in InductorSim9
+     */
+    public WireCatalog next() {
+        switch (m_nType) {
+            case AWG:    return s_swg;
+            case SWG:    return s_metric;
+            default:     return s_awg;
+        }
+    }
+
+    /**
+     * @return AWG, SWG, METRIC or ALL
+     */
+    public int getType()                { return m_nType; }
+
+    /**
+     * @return how many wire sizes we know about
+     */
+    public int size()                   { return m_wire.length; }
+
+    /**
+     * @param index = 0 ... size()-1, in the order of the table
+     * @return that wire size
+     */
+    public CopperWire get(int index)    { return m_wire[index]; }
+
+    /**
+     * @return a copy of the table, for code that wants an array
+     */
+    public CopperWire[] toArray()       { return m_wire.clone(); }
+
+    /**
+     * Look up a wire size by name, such as "18 AWG", "18awg", "20 SWG" or
+     * "1.00 mm". Spaces and upper/lower case don't matter. A bare number is
+     * taken to be AWG.
+     *
+     * @return the wire size, or null if this catalog doesn't have it
+     */
+    public CopperWire find(String sName) {
+        String sKey = normalize(sName);
+        if (sKey.length() > 0 && Character.isDigit(sKey.charAt(sKey.length()-1)))
+            sKey += "AWG";
+        return m_byName.get(sKey);
+    }
+
+    /**
+     * @param fDiameter = wire diameter (mm)
+     * @return the wire size with the closest diameter
+     */
+    public CopperWire nearestByDiameter(float fDiameter) {
+        return m_wire[nearest(m_byDiameter, m_orderDiameter, fDiameter)];
+    }
+
+    /**
+     * @param fCircularMils = cross-sectional area (circular mils)
+     * @return the wire size with the closest cross-section
+     */
+    public CopperWire nearestByCircularMils(float fCircularMils) {
+        return m_wire[nearest(m_byMils, m_orderMils, fCircularMils)];
+    }
+
+    /**
+     * @param fOhmsPerMeter = resistance of one meter of wire (ohms)
+     * @return the wire size with the closest resistance per meter
+     */
+    public CopperWire nearestByResistancePerMeter(float fOhmsPerMeter) {
+        return m_wire[nearest(m_byOhms, m_orderOhms, fOhmsPerMeter)];
+    }
+
+    /**
+     * binary search of a sorted key for the entry closest to the value
+     * @return index into m_wire
+     */
+    private static int nearest(float[] keys, int[] order, float fValue) {
+        int lo = 0;
+        int hi = keys.length - 1;
+        while (hi - lo > 1) {
+            int middle = (lo + hi) >>> 1;
+            if (keys[middle] <= fValue)
+                lo = middle;
+            else
+                hi = middle;
+        }
+        // the value lies between keys[lo] and keys[hi] (or off one end)
+        return (Math.abs(keys[hi] - fValue) < Math.abs(keys[lo] - fValue)) ? order[hi] : order[lo];
+    }
+
+    /**
+     * Sort the keys, and record where each one came from.
+     * Insertion sort is plenty for a few dozen wire sizes.
+     */
+    private static void sortIndex(float[] keys, int[] order) {
+        for (int ii=0; ii<keys.length; ii++) {
+            order[ii] = ii;
+        }
+        for (int ii=1; ii<keys.length; ii++) {
+            float key = keys[ii];
+            int index = order[ii];
+            int jj = ii;
+            while (jj > 0 && keys[jj-1] > key) {
+                keys[jj] = keys[jj-1];
+                order[jj] = order[jj-1];
+                jj--;
+            }
+            keys[jj] = key;
+            order[jj] = index;
+        }
+    }
+
+    private static CopperWire[] concat(CopperWire[] a, CopperWire[] b, CopperWire[] c) {
+        CopperWire[] all = new CopperWire[a.length + b.length + c.length];
+        System.arraycopy(a, 0, all, 0, a.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        System.arraycopy(c, 0, all, a.length + b.length, c.length);
+        return all;
+    }
+
+    // helper function: "1.00 mm" -> "1.00MM",  "18  AWG" -> "18AWG"
+    private static String normalize(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int ii=0; ii<s.length(); ii++) {
+            char ch = s.charAt(ii);
+            if (ch != ' ' && ch != '\t')
+                sb.append(Character.toUpperCase(ch));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package rlc;
+
+/**
+ * AnalyticResponse is the exact, closed-form solution of the series RLC
+ * circuit WITHOUT the diode. There is nothing to integrate: any point in
+ * time costs the same handful of exp/cos/sin calls.
+ *
+ * The inductor current obeys
+ *     i'' + (R/L) i' + i/(LC) = 0
+ *     i(0) = I0,  i'(0) = (V0 - R*I0) / L
+ * With alpha = R/2L and w0 = 1/sqrt(LC) there are three kinds of answer:
+ *   under-damped      alpha < w0:  i = e^(-alpha t) (A cos wt + B sin wt)
+ *   critically damped alpha = w0:  i = e^(-alpha t) (A + B t)
+ *   over-damped       alpha > w0:  i = A e^(s1 t) + B e^(s2 t)
+ * and the capacitor voltage follows from  v = L i' + R i.
+ *
+ * The time of peak current and the first zero-crossing also have exact
+ * formulas, so they don't depend on any step size. A response is immutable.
+ */
+
+//----------------------------------------------------------------------
+//           AnalyticResponse
+//----------------------------------------------------------------------
+public final class AnalyticResponse
+{
+    private static final int UNDER_DAMPED = 1;
+    private static final int CRITICALLY_DAMPED = 2;
+    private static final int OVER_DAMPED = 3;
+
+    private final double m_R;           // ohms
+    private final double m_L;           // henries
+    private final int m_nType;          // one of the *_DAMPED constants
+    private final double m_alpha;       // decay rate (1/seconds)
+    private final double m_omega;       // ringing frequency when under-damped (radians/second)
+    private final double m_s1, m_s2;    // exponents when over-damped (1/seconds)
+    private final double m_A, m_B;      // coefficients from the initial conditions
+
+    /**
+     * @param c = component values, the diode (if any) is ignored
+     * @param volts = initial capacitor charge (volts)
+     * @param amps = initial inductor current (amps)
+     */
+    public AnalyticResponse(Circuit c, double volts, double amps) {
+        m_R = c.getResistance();
+        m_L = c.getInductance();
+        double w0squared = 1. / (m_L * c.getCapacitance());
+        double dI0 = (volts - m_R * amps) / m_L;
+
+        m_alpha = m_R / (2 * m_L);
+        double discriminant = m_alpha * m_alpha - w0squared;
+        if (Math.abs(discriminant) <= 1E-12 * w0squared) {
+            m_nType = CRITICALLY_DAMPED;
+            m_omega = 0;
+            m_s1 = m_s2 = -m_alpha;
+            m_A = amps;
+            m_B = dI0 + m_alpha * amps;
+        } else if (discriminant < 0) {
+            m_nType = UNDER_DAMPED;
+            m_omega = Math.sqrt(-discriminant);
+            m_s1 = m_s2 = -m_alpha;
+            m_A = amps;
+            m_B = (dI0 + m_alpha * amps) / m_omega;
+        } else {
+            m_nType = OVER_DAMPED;
+            m_omega = 0;
+            double beta = Math.sqrt(discriminant);
+            m_s1 = -m_alpha + beta;
+            m_s2 = -m_alpha - beta;
+            m_A = (dI0 - m_s2 * amps) / (m_s1 - m_s2);
+            m_B = amps - m_A;
+        }
+    }
+
+    /**
+     * @param t = time (seconds)
+     * @return current in the inductor (amps)
+     */
+    public double current(double t) {
+        switch (m_nType) {
+            case UNDER_DAMPED:
+                double x = m_omega * t;
+                return Math.exp(-m_alpha * t) * (m_A * Math.cos(x) + m_B * Math.sin(x));
+            case CRITICALLY_DAMPED:
+                return Math.exp(-m_alpha * t) * (m_A + m_B * t);
+            default:
+                return m_A * Math.exp(m_s1 * t) + m_B * Math.exp(m_s2 * t);
+        }
+    }
+
+    /**
+     * @param t = time (seconds)
+     * @return derivative of the inductor current (amps/second)
+     */
+    public double slope(double t) {
+        switch (m_nType) {
+            case UNDER_DAMPED:
+                double x = m_omega * t;
+                return Math.exp(-m_alpha * t)
+                     * ((m_B * m_omega - m_alpha * m_A) * Math.cos(x)
+                      - (m_A * m_omega + m_alpha * m_B) * Math.sin(x));
+            case CRITICALLY_DAMPED:
+                return Math.exp(-m_alpha * t) * (m_B - m_alpha * (m_A + m_B * t));
+            default:
+                return m_s1 * m_A * Math.exp(m_s1 * t) + m_s2 * m_B * Math.exp(m_s2 * t);
+        }
+    }
+
+    /**
+     * @param t = time (seconds)
+     * @return voltage on the capacitor (volts)
+     */
+    public double voltage(double t) {
+        return m_L * slope(t) + m_R * current(t);
+    }
+
+    /**
+     * @return time (seconds) of the first maximum of the current,
+     * or zero if the current is already falling at the start
+     */
+    public double peakTime() {
+        if (slope(0) <= 0)
+            return 0;
+
+        switch (m_nType) {
+            case UNDER_DAMPED:
+                // slope is  P cos(wt) + Q sin(wt), and it goes from + to - at  wt = atan2(Q,P) + pi/2
+                double P = m_B * m_omega - m_alpha * m_A;
+                double Q = -(m_A * m_omega + m_alpha * m_B);
+                return firstPositiveAngle(Math.atan2(Q, P) + Math.PI / 2) / m_omega;
+            case CRITICALLY_DAMPED:
+                return (m_B - m_alpha * m_A) / (m_alpha * m_B);
+            default:
+                double ratio = -(m_s2 * m_B) / (m_s1 * m_A);
+                return Math.log(ratio) / (m_s1 - m_s2);
+        }
+    }
+
+    /**
+     * @return the largest current (amps) reached during the pulse
+     */
+    public double peakCurrent() {
+        return current(peakTime());
+    }
+
+    /**
+     * @return time (seconds) when the current first reverses direction,
+     * or NaN if it never does (critically damped and over-damped circuits)
+     */
+    public double zeroCrossingTime() {
+        double t;
+        switch (m_nType) {
+            case UNDER_DAMPED:
+                // current is  A cos(wt) + B sin(wt), which is zero at  wt = atan2(B,A) + pi/2
+                return firstPositiveAngle(Math.atan2(m_B, m_A) + Math.PI / 2) / m_omega;
+            case CRITICALLY_DAMPED:
+                t = -m_A / m_B;
+                break;
+            default:
+                t = Math.log(-m_B / m_A) / (m_s1 - m_s2);
+                break;
+        }
+        return (t > 0) ? t : Double.NaN;
+    }
+
+    /**
+     * zeros of a sinusoid repeat every pi radians, find the first one after zero
+     */
+    private static double firstPositiveAngle(double x) {
+        while (x <= 0)
+            x += Math.PI;
+        while (x > Math.PI)
+            x -= Math.PI;
+        return x;
+    }
+} // end class AnalyticResponse
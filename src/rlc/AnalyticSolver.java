@@ -0,0 +1,84 @@
+package rlc;
+
+/**
+ * AnalyticSolver fills in the clock ticks straight from the exact solution
+ * (AnalyticResponse) instead of integrating, so each tick costs the same
+ * no matter how long the run is, and there is no step size error at all.
+ *
+ * It only understands the linear circuit with fixed parts. If the diode is
+ * fitted it hands the job to the implicit solver; if the events heat the
+ * coil (ThermalModel), the resistance goes up during the run and there is no
+ * closed form, but the circuit is still smooth, so it takes RK4 steps. Use
+ * one instance per thread.
+ */
+
+//----------------------------------------------------------------------
+//           AnalyticSolver
+//----------------------------------------------------------------------
+public final class AnalyticSolver implements Solver
+{
+    // the diode is nonlinear and has no closed-form solution
+    private final ImplicitTRBDF2 m_fallback = new ImplicitTRBDF2();
+
+    /**
+     * Evaluate the exact solution at ticks [1] ... [nSamples-1],
+     * starting from the initial state in volts[0] and amps[0].
+     */
+    public void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt) {
+        solve(c, volts, amps, nSamples, dt, null);
+    }
+
+    /**
+     * As above, looking for events between the ticks. The exact slopes are
+     * known at every tick, so the events are as good as the interpolation,
+     * and the peak and the zero-crossing are better still: once the detector
+     * has seen them, they are replaced with the closed-form answers.
+     */
+    public void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt, EventDetector events) {
+        if (c.hasDiode()) {
+            m_fallback.solve(c, volts, amps, nSamples, dt, events);
+            return;
+        }
+        if (events != null && events.getThermalModel() != null) {
+            RK4Kernel.run(c, volts, amps, nSamples, dt, events);
+            return;
+        }
+
+        AnalyticResponse response = new AnalyticResponse(c, volts[0], amps[0]);
+        if (events != null)
+            events.reset();
+        final double R = c.getResistance();
+        final double L = c.getInductance();
+        double dI0 = response.slope(0);
+        double peakTime = response.peakTime();
+        double zeroTime = response.zeroCrossingTime();
+        boolean bPeakDone = false, bZeroDone = false;
+        for (int ii=1; ii<nSamples; ii++) {
+            // voltage is  L*slope + R*current,  so don't work out the exponentials twice
+            double t = ii * dt;
+            double dI1 = response.slope(t);
+            amps[ii] = response.current(t);
+            volts[ii] = L * dI1 + R * amps[ii];
+
+            if (events != null) {
+                boolean stop = events.check(c, t - dt, dt, volts[ii-1], amps[ii-1], c.dV_dt(volts[ii-1], amps[ii-1]), dI0,
+                                                           volts[ii], amps[ii], c.dV_dt(volts[ii], amps[ii]), dI1);
+                if (!bPeakDone && events.hasOccurred(EventDetector.CURRENT_PEAK)) {
+                    events.correct(EventDetector.CURRENT_PEAK, peakTime, response.voltage(peakTime), response.current(peakTime));
+                    bPeakDone = true;
+                }
+                if (!bZeroDone && events.hasOccurred(EventDetector.CURRENT_ZERO)) {
+                    events.correct(EventDetector.CURRENT_ZERO, zeroTime, response.voltage(zeroTime), 0);
+                    bZeroDone = true;
+                }
+                if (stop) {
+                    events.setTicks(ii + 1);
+                    return;
+                }
+                dI0 = dI1;
+            }
+        }
+        if (events != null)
+            events.setTicks(nSamples);
+    }
+} // end class AnalyticSolver
@@ -0,0 +1,110 @@
+package rlc;
+
+/**
+ * Circuit holds the component values of the RLC circuit, and knows how
+ * to compute the slope (derivative) of the state variables for any
+ * capacitor voltage and inductor current.
+ *
+ * The component values never change during a simulation, so a Circuit is
+ * immutable and one instance can be shared by any number of states,
+ * integrators and threads.
+ *
+ * @see SimState for the circuit diagram
+ */
+
+//----------------------------------------------------------------------
+//           Circuit
+//----------------------------------------------------------------------
+public final class Circuit
+{
+    // represents the physical components
+    private final double m_R;           // ohms
+    private final double m_L;           // henries
+    private final double m_C;           // farads
+    private final boolean m_diode;      // true=diode, false=no diode
+
+    /**
+     * @param R = resistance (ohms)
+     * @param L = inductance (henries)
+     * @param C = capacitance (farads)
+     * @param diode = true for protection diode, false for no diode
+     */
+    public Circuit(double R, double L, double C, boolean diode) {
+        m_R = R;
+        m_L = L;
+        m_C = C;
+        m_diode = diode;
+    }
+
+    /**
+     * Helper function to compute time (seconds) for at least TWO cycles at
+     * natural frequency, rounded up to a nice number for graphing.
+     * @param inductance in henrys
+     * @param capacitance in farads
+     * @return seconds
+     */
+    public static float getTotalSimulationTime(float inductance, float capacitance) {
+        final float NUMBER_OF_CYCLES = 2.F;
+        double natural_freq = 1.F / (2 * Math.PI * Math.sqrt(inductance * capacitance));
+        double expected_et = NUMBER_OF_CYCLES / natural_freq;
+        double roundup_et = Nearest.ThirdDecade(expected_et);
+        return (float)roundup_et;
+    }
+
+    public double getResistance()   { return m_R; }
+    public double getInductance()   { return m_L; }
+    public double getCapacitance()  { return m_C; }
+    public boolean hasDiode()       { return m_diode; }
+
+    /**
+     * Calculate the instantaneous derivative of capacitor voltage
+     * with respect to time.
+     * @param volts = voltage on the capacitor
+     * @param amps = current in the inductor
+     * @return derivative of the capacitor voltage
+     */
+    public double dV_dt(double volts, double amps) {
+        if (m_diode) {
+            // note: diode is connected in REVERSE across the capacitor to protect it
+            // hence we give the diode the NEGATIVE of Vc, and its current flows
+            // back into the capacitor to stop the voltage going any more negative
+            return (SimState.diodeCurrent(volts * (-1.)) - amps) / m_C;
+        }
+        else
+            return (0 - amps) / m_C;
+    }
+
+    /**
+     * Jacobian of the circuit: how dV_dt() changes with the capacitor voltage.
+     * The other three partial derivatives are constants:
+     *   d(dV_dt)/dI = -1/C,   d(dI_dt)/dV = 1/L,   d(dI_dt)/dI = -R/L
+     * @param volts = voltage on the capacitor
+     * @return partial derivative of dV_dt with respect to volts (1/seconds)
+     */
+    public double dVdot_dV(double volts) {
+        if (m_diode)
+            return (-1.) * SimState.diodeConductance(volts * (-1.)) / m_C;
+        else
+            return 0;
+    }
+
+    /**
+     * Calculate the instantaneous derivative of inductor current
+     * with respect to time.
+     * @param volts = voltage on the capacitor
+     * @param amps = current in the inductor
+     * @return derivative of the inductor current
+     */
+    public double dI_dt(double volts, double amps) {
+        return (volts - amps * m_R) / m_L;
+    }
+
+    /**
+     * Same as dI_dt() above, but with the resistance given instead of the
+     * circuit's own, for a coil whose resistance changes as it heats up.
+     * @param R = resistance to use (ohms)
+     */
+    public double dI_dt(double volts, double amps, double R) {
+        return (volts - amps * R) / m_L;
+    }
+} // end class Circuit
@@ -0,0 +1,52 @@
+package rlc;
+
+import coilsim.CoilResult;
+
+/**
+ * CoilDischarge is one design from a CoilSweep: a coil wound with one size of
+ * wire (from the inductor simulator), fired from a capacitor bank through the
+ * RLC circuit (from this simulator). It holds both halves, so you can see
+ * why a design did well: how many turns and how much copper went into it,
+ * what current came out, and how hot the copper got.
+ *
+ * A CoilDischarge is immutable, so it can be handed between threads freely.
+ */
+
+//----------------------------------------------------------------------
+//           CoilDischarge
+//----------------------------------------------------------------------
+public final class CoilDischarge
+{
+    private final CoilResult m_coil;        // turns, L and R of the coil alone
+    private final RunSummary m_run;         // the discharge, with external resistance added
+
+    CoilDischarge(CoilResult coil, RunSummary run) {
+        m_coil = coil;
+        m_run = run;
+    }
+
+    public CoilResult getCoil()         { return m_coil; }
+    public RunSummary getRun()          { return m_run; }
+
+    /**
+     * @return resistance of the whole circuit: coil plus external wiring and switch (ohms)
+     */
+    public double getTotalResistance()  { return m_run.getCircuit().getResistance(); }
+
+    public double getPeakCurrent()      { return m_run.getPeakCurrent(); }
+    public double getPulseWidth()       { return m_run.getPulseWidth(); }
+    public double getAction()           { return m_run.getAction(); }
+
+    /**
+     * @return how much hotter the coil got during the discharge (C)
+     */
+    public double getTemperatureRise()  { return m_run.getTemperatureRise(); }
+
+    public String toString() {
+        return m_coil.Geometry().OD() + "x" + m_coil.Geometry().ID() + "x" + m_coil.Geometry().Length()
+             + " mm, " + m_coil.Wire().Name().replace("  ", " ") + ": "
+             + m_coil.TotalTurns() + " turns, " + m_coil.Inductance() + " mH, "
+             + getTotalResistance() + " ohms -> " + getPeakCurrent() + " A peak, "
+             + getTemperatureRise() + " C hotter";
+    }
+} // end class CoilDischarge
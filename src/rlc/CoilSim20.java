@@ -13,6 +13,7 @@ import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 //----------------------------------------------------------------------
 //           CoilSim20
@@ -44,13 +45,57 @@ public class CoilSim20 extends javax.swing.JApplet
     // things that control simulation
     static final int NUM_STEPS = 500;   // total number of divisions in simulation
     public float m_elapsed_time;        // total simulation time (sec)
+
+    // progressive refinement: show the quick NUM_STEPS run at once, then run
+    // again with more and more steps in the background, swapping each one in
+    static final int[] REFINEMENT = { NUM_STEPS, 4*NUM_STEPS, 16*NUM_STEPS, 64*NUM_STEPS };
+    public boolean m_progressive = true;    // FALSE = just the NUM_STEPS run
+
+    // playback: animate the last result, from a copy of its trajectory, at a
+    // steady frame rate; a discharge is over in milliseconds, so it's slowed
+    // down to take PLAYBACK_SECONDS at 1x
+    static final int PLAYBACK_FPS = 30;
+    static final float PLAYBACK_SECONDS = 5.F;  // wall-clock time for a whole run at 1x
+    static private final float[] PLAYBACK_SPEEDS = { 0.25F, 1.F, 4.F };
+    private final TraceRing m_playback = new TraceRing(REFINEMENT[REFINEMENT.length-1]);
+    private final javax.swing.Timer m_playTimer = new javax.swing.Timer(1000/PLAYBACK_FPS, null);
+    private double m_cursorTime = Double.NaN;   // seconds; NaN = no playback, show the whole graph
+    private long m_lastFrameNanos;              // System.nanoTime() of the last frame
+    private float m_playSpeed = 1.F;
+    private float m_playAmpsScale;              // y1_axis_maximum of the result being played
+    private float m_playVoltsScale;             // y2_axis_maximum
+    private Rectangle m_graphBounds;            // canvas_graph, saved so a frame doesn't allocate
+    private final char[] m_readout = new char[64];
     private boolean inInit;             // TRUE = init() is active, don't run simulation
+
+    // choice of integrator, selectable for each run
+    static final int SOLVER_RK4 = 0;    // fixed step 4th order Runge-Kutta, one step per tick
+    static final int SOLVER_RK45 = 1;   // adaptive step Dormand-Prince 4(5)
+    static final int SOLVER_IMPLICIT = 2;// implicit TR-BDF2, stable with the stiff diode
+    static final int SOLVER_ANALYTIC = 3;// exact solution, no integration (no diode)
+    static final int SOLVER_AUTO = 4;   // exact solution if possible, otherwise implicit
+    public int m_solver = SOLVER_AUTO;
+    private final RK4Kernel solverRK4 = new RK4Kernel();
+    private final DormandPrince45 solverRK45 = new DormandPrince45(1E-6, 1E-6);
+    private final ImplicitTRBDF2 solverImplicit = new ImplicitTRBDF2();
+    private final AnalyticSolver solverAnalytic = new AnalyticSolver();
     
-    // simulation results
-    SimState m_state[];                 // an array of references to circuit state objects
+    // simulation results, owned by this window alone and re-used by every run;
+    // the runs themselves are done by the worker, off the event thread
+    SimContext m_sim;
+    private SimWorker m_worker;
+
+    // the graph is drawn off-screen, and only drawn again when the results or the
+    // size change; every other repaint just copies it to the screen
+    private BufferedImage m_gridLayer;  // borders, axes and grid lines: change only with the size
+    private BufferedImage m_graphLayer; // the grid, plus labels and traces: change with every run
+    private boolean m_graphValid;       // FALSE = graph layer is out of date
     
     // helper class for formatting numbers
     private Nearest nearest = new Nearest();
+
+    // helper class that boils the traces down to a couple of points per pixel
+    private final TraceDecimator m_decimator = new TraceDecimator();
     static final Color BEIGE = new java.awt.Color(255,255,221);        // input background color
     static final Color GREENPASTEL = new java.awt.Color(229,255,238);  // output background color
 
@@ -71,9 +116,12 @@ public class CoilSim20 extends javax.swing.JApplet
     java.awt.Canvas canvas_output = new java.awt.Canvas();  // region with all output data - pastel green background and rounded corners
     java.awt.Canvas canvas_graph = new java.awt.Canvas();   // region where output graph is plotted
     java.awt.Button buttonReset = new java.awt.Button();
+    java.awt.Button buttonPlay = new java.awt.Button();
+    java.awt.Choice choiceSpeed = new java.awt.Choice();
     java.awt.Checkbox checkboxVoltage = new java.awt.Checkbox();
     java.awt.Checkbox checkboxCurrent = new java.awt.Checkbox();
     java.awt.Checkbox checkboxDiode = new java.awt.Checkbox();
+    java.awt.Choice choiceSolver = new java.awt.Choice();
 
     /**
      * Initialize our java application by filling in all the user interface
@@ -86,9 +134,12 @@ public class CoilSim20 extends javax.swing.JApplet
         // prevent simulation from running until initialization is complete
         inInit = true;
 
-        // init array with 400 references, all null
-        m_state = new SimState[NUM_STEPS];
-        SimState.m_fMax = 0.F;
+        // allocate the result buffers once, every run re-uses them
+        m_sim = new SimContext(REFINEMENT[REFINEMENT.length-1]);
+        m_sim.setSamples(NUM_STEPS);
+        m_worker = new SimWorker(m_sim, new Runnable() {
+            public void run() { showResult(); }
+        });
 
         // set initial state to default values
         m_voltage = INIT_VOLTAGE;
@@ -146,7 +197,6 @@ public class CoilSim20 extends javax.swing.JApplet
 
         checkboxDiode.setLabel("Use antiparallel diode");
         checkboxDiode.setBounds(12,316, 186,24);
-        checkboxDiode.setVisible(false);        // TODO - fix the simulator, and re-enable this option
         content.add(checkboxDiode);
 
         checkboxCurrent.setState(true);
@@ -160,23 +210,60 @@ public class CoilSim20 extends javax.swing.JApplet
         checkboxVoltage.setBounds(12,360, 186,24);
         content.add(checkboxVoltage);
 
+        choiceSolver.add("RK4 fixed step");
+        choiceSolver.add("RK45 adaptive");
+        choiceSolver.add("TR-BDF2 implicit");
+        choiceSolver.add("Exact (no diode)");
+        choiceSolver.add("Automatic");
+        choiceSolver.select(m_solver);
+        choiceSolver.setBounds(198,314, 130,24);
+        content.add(choiceSolver);
+
         buttonReset.setLabel("Reset");
         buttonReset.setBounds(198,340, 80,48);
         content.add(buttonReset);
 
+        buttonPlay.setLabel("Play");
+        buttonPlay.setBounds(282,340, 50,22);
+        content.add(buttonPlay);
+
+        choiceSpeed.add("1/4x");
+        choiceSpeed.add("1x");
+        choiceSpeed.add("4x");
+        choiceSpeed.select(1);
+        choiceSpeed.setBounds(282,366, 50,22);
+        content.add(choiceSpeed);
+
         //{{REGISTER_LISTENERS
         SymAction lSymAction = new SymAction();
         buttonReset.addActionListener(lSymAction);
+        buttonPlay.addActionListener(lSymAction);
+        m_playTimer.addActionListener(lSymAction);
+        SymMouse lSymMouse = new SymMouse();
+        content.addMouseListener(lSymMouse);
+        content.addMouseMotionListener(lSymMouse);
         SymItem lSymItem = new SymItem();
         checkboxVoltage.addItemListener(lSymItem);
         checkboxCurrent.addItemListener(lSymItem);
         checkboxDiode.addItemListener(lSymItem);
+        choiceSolver.addItemListener(lSymItem);
+        choiceSpeed.addItemListener(lSymItem);
         //}}
 
         // init is complete, run simulation for the first time
         // this prevents it from running while init'ing the slider controls
         inInit = false;
-        runSim();
+        runSimAndWait();
+    }
+
+    /**
+     * Stop the simulation worker when the applet goes away
+     */
+    public void destroy() {
+        m_playTimer.stop();
+        if (m_worker != null)
+            m_worker.shutdown();
+        super.destroy();
     }
 
     /** Helper function to compute time (seconds) for at least TWO cycles at natural frequency
@@ -185,11 +272,7 @@ public class CoilSim20 extends javax.swing.JApplet
      * @return seconds
      */
     private float getTotalSimulationTime(float inductance, float capacitance) {
-        final float NUMBER_OF_CYCLES = 2.F;
-        double natural_freq = 1.F / (2 * Math.PI * Math.sqrt(inductance * capacitance));
-        double expected_et = NUMBER_OF_CYCLES / natural_freq;
-        double roundup_et = Nearest.ThirdDecade(expected_et);
-        return (float)roundup_et;
+        return Circuit.getTotalSimulationTime(inductance, capacitance);
     }
 
     /**
@@ -199,7 +282,6 @@ public class CoilSim20 extends javax.swing.JApplet
     {
         // set initial state to default values
         inInit = true;
-        SimState.m_fMax = 0.F;
         sliderVoltage.setMaximum(MAX_VOLT);
         sliderVoltage.setValueFloat(INIT_VOLTAGE);
 
@@ -353,6 +435,10 @@ public class CoilSim20 extends javax.swing.JApplet
      * run the simulation by reading the slider values, and
      * looping through all the itty bitty increments of time.
      * Oh yeah, plot the results when we're done.
+     * The run happens on the worker thread: this returns at once, and
+     * showResult() is called when the graph is ready. If the sliders move
+     * again first, this run is cancelled and only the newest one is shown.
+     * In progressive mode, showResult() is called again for each finer run.
      */
     public void runSim() {
         // don't run if we got called while initializing slider controls
@@ -368,17 +454,61 @@ public class CoilSim20 extends javax.swing.JApplet
         // set the time duration to show a couple cycles at this resonant frequency
         m_elapsed_time = getTotalSimulationTime(m_inductance, m_capacitance);
 
-        // set the very first initial state
-        m_state[0] = new SimState( m_voltage, 0);
-        m_state[0].init_comp( m_resistance, m_inductance, m_capacitance, checkboxDiode.getState() );
+        // component values
+        Circuit circuit = new Circuit( m_resistance, m_inductance, m_capacitance, checkboxDiode.getState() );
 
         // run simulation and show results
-        float steptime = m_elapsed_time / NUM_STEPS;    // time between each clock tick
-        for (int ii=1; ii<NUM_STEPS; ii++) {
-            m_state[ii] = m_state[ii-1].NextState( steptime );
+        Solver solver;
+        if (m_solver == SOLVER_RK45)
+            solver = solverRK45;
+        else if (m_solver == SOLVER_IMPLICIT)
+            solver = solverImplicit;
+        else if (m_solver == SOLVER_RK4 && !circuit.hasDiode())
+            solver = solverRK4;
+        else if (circuit.hasDiode())
+            solver = solverImplicit;    // diode is nonlinear, no exact solution
+        else
+            solver = solverAnalytic;
+        int[] ladder = m_progressive ? REFINEMENT : new int[] { NUM_STEPS };
+        m_worker.submit( solver, circuit, m_voltage, m_elapsed_time, ladder );
+    } // end runSim()
+
+    /**
+     * Run the simulation and wait for it to finish, so the graph is ready
+     * right away (e.g. the first one, before the window appears)
+     */
+    void runSimAndWait() {
+        runSim();
+        try {
+            m_worker.awaitIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        showResult();
+    }
+
+    /**
+     * The worker has finished a run: show it
+     */
+    private void showResult() {
+        m_sim = m_worker.takeResult();
+
+        // keep a copy of the trajectory for playback, and the scales it was drawn at
+        m_playback.load(m_sim);
+        m_playAmpsScale = Nearest.FractionOfDecade(m_sim.getPeakCurrent());
+        m_playVoltsScale = Nearest.FractionOfDecade(m_sim.getVolts()[0]);
+        if (m_cursorTime > m_sim.getElapsedTime())
+            m_cursorTime = m_sim.getElapsedTime();
+        invalidateGraph();
         repaint();
-    } // end runSim()
+    }
+
+    /**
+     * The results (or the checkboxes) have changed: draw the graph again at the next repaint
+     */
+    void invalidateGraph() {
+        m_graphValid = false;
+    }
 
     /**
      * Debug: highlight a canvas by drawing a red border
@@ -396,15 +526,230 @@ public class CoilSim20 extends javax.swing.JApplet
     }
 
     /**
-     * Draw the axis and tick marks, then draw the graph
+     * Copy the graph to the screen, drawing it again first if it's out of date.
+     * Window exposes and moves just copy the image, without any flicker.
      */
     public void paint(Graphics g) {
         super.paint(g); // clear the canvas
+        int nWidth = Math.max(getWidth(), 1);
+        int nHeight = Math.max(getHeight(), 1);
+        if (m_gridLayer == null || m_gridLayer.getWidth() != nWidth || m_gridLayer.getHeight() != nHeight) {
+            m_gridLayer = createGridLayer(nWidth, nHeight);
+            m_graphLayer = new BufferedImage(nWidth, nHeight, BufferedImage.TYPE_INT_ARGB);
+            m_graphBounds = canvas_graph.getBounds();
+            m_graphValid = false;
+        }
+        if (!m_graphValid) {
+            paintGraphLayer();
+            m_graphValid = true;
+        }
+        g.drawImage(m_graphLayer, 0, 0, null);
+        if (!Double.isNaN(m_cursorTime))
+            paintPlayback(g);
+    }
+
+    //------------------------------------------------------------------
+    // Playback: one frame of the animation. The traces are shown up to
+    // the cursor, with a dot on each and a readout of the values there;
+    // to the right of the cursor, just the grid. Everything comes from the
+    // layers and the playback buffer, with nothing allocated.
+    //------------------------------------------------------------------
+    private void paintPlayback(Graphics g) {
+        Rectangle r = m_graphBounds;
+        int ii = m_playback.indexAt(m_cursorTime);
+        if (ii < 0)
+            return;
+        int x = r.x + (int)(r.width * m_cursorTime / m_sim.getElapsedTime());
+
+        // hide the traces to the right of the cursor
+        int right = r.x + r.width + 1;
+        int bottom = r.y + r.height + 1;
+        if (x + 1 < right) {
+            g.setColor(getContentPane().getBackground());
+            g.fillRect(x+1, r.y, right-x-1, bottom-r.y);
+            g.drawImage(m_gridLayer, x+1, r.y, right, bottom, x+1, r.y, right, bottom, null);
+        }
+
+        // the cursor itself
+        g.setColor(Color.darkGray);
+        g.drawLine(x, r.y, x, r.y + r.height);
+
+        float volts = m_playback.get(TraceRing.VOLTS, ii);
+        float amps = m_playback.get(TraceRing.AMPS, ii);
+        int nHeight = r.height *5/7;
+        int n = 0;
+        n = appendChars(m_readout, n, "t=");
+        n = appendEng(m_readout, n, m_playback.get(TraceRing.TIME, ii), 's');
+        if (checkboxCurrent.getState()) {
+            g.setColor(Color.blue);
+            g.fillOval(x-3, r.y + nHeight - (int)(nHeight * amps / m_playAmpsScale) - 3, 7, 7);
+            n = appendChars(m_readout, n, "   I=");
+            n = appendEng(m_readout, n, amps, 'A');
+        }
+        if (checkboxVoltage.getState()) {
+            g.setColor(Color.red);
+            g.fillOval(x-3, r.y + nHeight - (int)(nHeight * volts / m_playVoltsScale) - 3, 7, 7);
+            n = appendChars(m_readout, n, "   V=");
+            n = appendEng(m_readout, n, volts, 'v');
+        }
+        float position = m_playback.get(TraceRing.POSITION, ii);
+        if (!Float.isNaN(position)) {
+            n = appendChars(m_readout, n, "   x=");
+            n = appendEng(m_readout, n, position, 'm');
+        }
+        g.setColor(Color.BLACK);
+        g.drawChars(m_readout, 0, n, r.x + 6, r.y + r.height - 6);
+    }
+
+    /**
+     * Start or pause the playback; starting again from the end goes back to the beginning
+     */
+    void togglePlayback() {
+        if (m_playTimer.isRunning()) {
+            m_playTimer.stop();
+            buttonPlay.setLabel("Play");
+            return;
+        }
+        if (Double.isNaN(m_cursorTime) || m_cursorTime >= m_sim.getElapsedTime())
+            m_cursorTime = 0;
+        m_lastFrameNanos = System.nanoTime();
+        m_playTimer.start();
+        buttonPlay.setLabel("Pause");
+        repaintGraph();
+    }
+
+    /**
+     * The timer ticked: move the cursor on by however long it's really been
+     * since the last frame, so the speed is steady even if frames are late
+     */
+    private void playbackFrame() {
+        long now = System.nanoTime();
+        double seconds = (now - m_lastFrameNanos) * 1E-9;
+        m_lastFrameNanos = now;
+
+        double duration = m_sim.getElapsedTime();
+        m_cursorTime += seconds * m_playSpeed * duration / PLAYBACK_SECONDS;
+        if (m_cursorTime >= duration) {
+            m_cursorTime = duration;
+            m_playTimer.stop();
+            buttonPlay.setLabel("Play");
+        }
+        repaintGraph();
+    }
+
+    /**
+     * Scrub: put the cursor under the mouse (playing or not)
+     */
+    private void scrubTo(int x) {
+        Rectangle r = m_graphBounds;
+        if (r == null || m_playback.size() == 0)
+            return;
+        double fraction = (double)(x - r.x) / r.width;
+        m_cursorTime = Math.max(0., Math.min(1., fraction)) * m_sim.getElapsedTime();
+        repaintGraph();
+    }
+
+    private void repaintGraph() {
+        Rectangle r = m_graphBounds;
+        if (r != null)
+            repaint(r.x - 4, r.y - 4, r.width + 9, r.height + 9);
+    }
+
+    /**
+     * Write characters into a buffer
+     * @return position after them
+     */
+    private static int appendChars(char[] buf, int pos, String s) {
+        int n = s.length();
+        s.getChars(0, n, buf, pos);
+        return pos + n;
+    }
+
+    /**
+     * Write a number into a buffer, to three significant figures with a
+     * metric prefix, e.g. "-12.3mA"; like Nearest.toStringEng but without
+     * making any Strings
+     * @return position after it
+     */
+    private static int appendEng(char[] buf, int pos, double value, char unit) {
+        final String PREFIXES = "num kM";      // 1E-9 ... 1E6
+        if (value < 0) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int nPrefix = 3;                        // no prefix
+        if (value > 0 && value < Double.POSITIVE_INFINITY) {
+            int nGroup = (int)Math.floor(Math.log10(value) / 3);
+            nGroup = Math.max(-3, Math.min(2, nGroup));
+            value /= Math.pow(1000, nGroup);
+            nPrefix = 3 + nGroup;
+        }
+
+        int decimals = (value >= 100) ? 0 : (value >= 10) ? 1 : 2;
+        int scale = (decimals == 0) ? 1 : (decimals == 1) ? 10 : 100;
+        long scaled = Math.round(value * scale);
+        if (scaled >= 1000L * scale && nPrefix < PREFIXES.length() - 1) {
+            // rounded up into the next prefix, e.g. 999.96 is 1.00k
+            nPrefix++;
+            decimals = 2;
+            scale = 100;
+            scaled = 100;
+        }
+        long whole = scaled / scale;
+
+        // digits of the whole part, backwards, then turn them round
+        int start = pos;
+        do {
+            buf[pos++] = (char)('0' + whole % 10);
+            whole /= 10;
+        } while (whole > 0);
+        for (int lo=start, hi=pos-1; lo<hi; lo++, hi--) {
+            char c = buf[lo];
+            buf[lo] = buf[hi];
+            buf[hi] = c;
+        }
+        if (decimals > 0) {
+            buf[pos++] = '.';
+            long fraction = scaled % scale;
+            if (decimals == 2)
+                buf[pos++] = (char)('0' + fraction / 10);
+            buf[pos++] = (char)('0' + fraction % 10);
+        }
+        if (PREFIXES.charAt(nPrefix) != ' ')
+            buf[pos++] = PREFIXES.charAt(nPrefix);
+        buf[pos++] = unit;
+        return pos;
+    }
+
+    /**
+     * Draw the borders, axes and grid lines into a transparent image of their own
+     */
+    private BufferedImage createGridLayer(int nWidth, int nHeight) {
+        BufferedImage image = new BufferedImage(nWidth, nHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(getForeground());
         paintRoundedBorder(g, canvas_input.getBounds());
         paintRoundedBorder(g, canvas_output.getBounds());
-        PaintFrame(g);
+        PaintGrid(g);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Draw the whole graph into the graph layer: the grid, then labels and traces on top
+     */
+    private void paintGraphLayer() {
+        Graphics2D g = m_graphLayer.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(m_gridLayer, 0, 0, null);
+        g.setComposite(AlphaComposite.SrcOver);
+        Font f = getFont();
+        if (f != null)
+            g.setFont(f);
+        PaintLabels(g);
         paintCurrentGraph(g);
         paintVoltageGraph(g);
+        g.dispose();
     }
 
     //------------------------------------------------------------------
@@ -438,7 +783,7 @@ public class CoilSim20 extends javax.swing.JApplet
     }
 
     //------------------------------------------------------------------
-    private void PaintFrame(Graphics g) {
+    private void PaintGrid(Graphics g) {
         // get the dimensions of the window
         //  +--------------------------+ (10  20  50) ...
         //  |                          |
@@ -466,24 +811,8 @@ public class CoilSim20 extends javax.swing.JApplet
         //debugCanvasBorder(g, canvas_input, Color.RED);
         //debugCanvasBorder(g, canvas_graph, Color.GREEN);
 
-        // prepare to measure width of strings on the window
-        Font f = getFont();
-        FontMetrics fm = getFontMetrics(f);
-
-        int saveIndex = findCurrentMax();
-        double fMaxAmps = m_state[saveIndex].m_Lcurrent;
-        float y1_axis_maximum = Nearest.FractionOfDecade(fMaxAmps);      // 1,2,5, 10,20,50, ...
-        float y2_axis_maximum = Nearest.FractionOfDecade(m_voltage);     // 1,2,5, 10,20,50, ...
-
         g.setColor(Color.gray);
 
-        // label X-axis tic marks with "Time"
-        final int XLABELS = 5;
-        for (int ii=1; ii<=XLABELS; ii++) {
-            String sTime = nearest.toStringEng(m_elapsed_time * ii/XLABELS, 2, "s");
-            g.drawString(sTime, nX+nWidth*ii/XLABELS-fm.stringWidth(sTime)/2, nY+nHeight*50/70+fm.getHeight() );
-        }
-
         // draw horizonal axises
         draw_X_axis_major(g, nY + nHeight* 0/70,  3, 0);
         draw_X_axis_minor(g, nY + nHeight*10/70);
@@ -497,6 +826,33 @@ public class CoilSim20 extends javax.swing.JApplet
         // draw vertical axises
         draw_Y_axis_major(g, nX, 0);
         draw_Y_axis_major(g, nX+nWidth, 0);
+    }
+
+    //------------------------------------------------------------------
+    private void PaintLabels(Graphics g) {
+        Rectangle bou = canvas_graph.getBounds();
+        final int nWidth = bou.width;
+        final int nHeight = bou.height;
+        final int nX = bou.x;
+        final int nY = bou.y;
+
+        // prepare to measure width of strings on the window
+        FontMetrics fm = g.getFontMetrics();
+
+        double fMaxAmps = m_sim.getPeakCurrent();
+        float y1_axis_maximum = Nearest.FractionOfDecade(fMaxAmps);      // 1,2,5, 10,20,50, ...
+        float y2_axis_maximum = Nearest.FractionOfDecade(m_sim.getVolts()[0]);   // 1,2,5, 10,20,50, ...
+
+        g.setColor(Color.gray);
+
+        // label X-axis tic marks with "Time"
+        final int XLABELS = 5;
+        for (int ii=1; ii<=XLABELS; ii++) {
+            String sTime = nearest.toStringEng(m_sim.getElapsedTime() * ii/XLABELS, 2, "s");
+            g.drawString(sTime, nX+nWidth*ii/XLABELS-fm.stringWidth(sTime)/2, nY+nHeight*50/70+fm.getHeight() );
+        }
+
+        // label vertical axises
         if (checkboxCurrent.getState()) {
             draw_Y_axis_label(g, fm, y1_axis_maximum, nX,        nY, Color.BLUE, "A");
         }
@@ -511,6 +867,13 @@ public class CoilSim20 extends javax.swing.JApplet
                  + "L=" + textHenryValue.getText();
         g.setColor(Color.BLACK);
         g.drawString(s, nX+nWidth/2-fm.stringWidth(s)/2, nY-4 );
+
+        // show what the integrator had to do to get there
+        String sSteps = m_sim.getSolverReport();
+        if (sSteps.length() > 0) {
+            g.setColor(Color.gray);
+            g.drawString(sSteps, IndexToX( 60, 100 ), ValueToY( -30., 100. ));
+        }
     }
 
     private void draw_X_axis_major(Graphics g, int nY, int below, int above) {
@@ -573,32 +936,19 @@ public class CoilSim20 extends javax.swing.JApplet
     // paint graph of inductor current
     //--------------------------------------------------------------
     private void paintCurrentGraph(Graphics g) {
-        // find the point of maximum current (defines Y-axis scales)
-        int indexCurrentMax = findCurrentMax();
-
-        double fMaxAmps = m_state[indexCurrentMax].m_Lcurrent;
+        // the point of maximum current (defines Y-axis scales)
+        double[] amps = m_sim.getAmps();
+        double fMaxAmps = m_sim.getPeakCurrent();
         float y1_axis_maximum = Nearest.FractionOfDecade(fMaxAmps);
 
-        int nXmax = IndexToX( indexCurrentMax, NUM_STEPS );
+        int nXmax = TimeToX( m_sim.getPeakTime() );
         int nYmax = ValueToY( fMaxAmps, y1_axis_maximum );
 
         // examine checkbox to see if we should draw the graph of current
         if (checkboxCurrent.getState()) {
-            // get coords of the first point
-            int nX0 = IndexToX( 0, NUM_STEPS);
-            int nY0 = ValueToY( m_state[0].m_Lcurrent, y1_axis_maximum );
-            g.setColor(Color.blue);
-
             // repaint the data for inductor current
-            for (int ii=1; ii<NUM_STEPS; ii++) {
-                int x = IndexToX(ii, NUM_STEPS);
-                int y = ValueToY(m_state[ii].m_Lcurrent, y1_axis_maximum );
-                g.drawLine(nX0, nY0, x, y);
-
-                // this point becomes the start of the next line segment
-                nX0 = x;
-                nY0 = y;
-            }
+            g.setColor(Color.blue);
+            paintTrace(g, amps, y1_axis_maximum);
 
             // label point of maximum current, using most convenient units
             String sMax;
@@ -613,11 +963,10 @@ public class CoilSim20 extends javax.swing.JApplet
             g.drawString(sMax, nXmax, nYmax-1 );
 
             // label time of first zero-crossing
-            int indexZeroCurrent = findCurrentZeroCrossing();
-            if (indexZeroCurrent > 0) {
-                float timeZeroCurrent = m_elapsed_time * indexZeroCurrent / NUM_STEPS;
+            if (m_sim.getEvents().hasOccurred(EventDetector.CURRENT_ZERO)) {
+                float timeZeroCurrent = (float)m_sim.getZeroCrossingTime();
                 String sZeroCrossing = nearest.toStringEng( timeZeroCurrent, 3, "s");
-                int x0 = IndexToX(indexZeroCurrent, NUM_STEPS);
+                int x0 = TimeToX(timeZeroCurrent);
                 int y0 = ValueToY(0, y1_axis_maximum);
                 g.drawString(sZeroCrossing, x0+16,   y0-26  );
                 g.drawLine( x0+4, y0-4,     x0+16-2, y0-26-2);
@@ -638,41 +987,6 @@ public class CoilSim20 extends javax.swing.JApplet
         }
     }
 
-    /**
-     * Helper function for scaling and graphing.
-     * This is used to auto-scale the vertical axis, and label point of maximum.
-     * @return returns array index for the point of maximum inductor current
-     */
-    private int findCurrentMax() {
-        int saveIndex = 0;
-        double fMax = 0;
-        for (int ii=0; ii<NUM_STEPS; ii++) {
-            // find the point of maximum current
-            if (m_state[ii].m_Lcurrent > fMax){
-                fMax = m_state[ii].m_Lcurrent;
-                saveIndex = ii;
-            }
-        }
-        return saveIndex;
-    }
-
-    /**
-     * Helper function for showing useful information about current graph.
-     * @return returns array index for the point of first zero-cross of inductor current
-     * if no zero-crossing, it returns zero
-     */
-    private int findCurrentZeroCrossing() {
-        int saveIndex = 0;
-        for (int ii=1; ii<NUM_STEPS; ii++) {
-            // find the first *negative* current
-            if (m_state[ii].m_Lcurrent < 0){
-                saveIndex = ii-1;
-                break;
-            }
-        }
-        return saveIndex;
-    }
-
     //--------------------------------------------------------------
     // paint graph of capacitor voltage (same as inductor voltage!)
     //--------------------------------------------------------------
@@ -682,31 +996,33 @@ public class CoilSim20 extends javax.swing.JApplet
         // Note: the maximum voltage is at time t=0, and then it can only
         // lose energy as time goes by. Voltage cannot peak higher than it
         // started.
-        double fMaxVolts = m_state[0].m_Cvoltage;
+        double[] volts = m_sim.getVolts();
+        double fMaxVolts = volts[0];
         float y2_axis_maximum = Nearest.FractionOfDecade(fMaxVolts);
         nXmax = IndexToX( 0, NUM_STEPS);
         nYmax = ValueToY( fMaxVolts, y2_axis_maximum );
 
         // examine checkbox to see if we should draw the graph of capacitor voltage
         if (checkboxVoltage.getState()) {
-            // get screen coords of the first point
-            int nX0 = IndexToX( 0, NUM_STEPS);
-            int nY0 = ValueToY( m_state[0].m_Cvoltage, y2_axis_maximum );
-            g.setColor(Color.red);
-
             // repaint the data for capacitor voltage
-            for (int ii=1; ii<NUM_STEPS; ii++) {
-                int x = IndexToX(ii, NUM_STEPS);
-                int y = ValueToY(m_state[ii].m_Cvoltage, y2_axis_maximum );
-                g.drawLine(nX0, nY0, x, y);
-
-                // this point becomes the start of the next line segment
-                nX0 = x;
-                nY0 = y;
-            }
+            g.setColor(Color.red);
+            paintTrace(g, volts, y2_axis_maximum);
         }
     }
 
+    //--------------------------------------------------------------
+    // paint one trace, every sample in the results, as a single polyline
+    // with no more than two points per pixel across; the same scale as
+    // IndexToX and ValueToY, without working them out for every sample
+    //--------------------------------------------------------------
+    private void paintTrace(Graphics g, double[] values, double fMaxValue) {
+        Rectangle panel = canvas_graph.getBounds();
+        int nHeight = panel.height *5/7;
+        m_decimator.decimate(values, m_sim.getSamples(), panel.x, panel.width,
+                             panel.y + nHeight, nHeight, fMaxValue);
+        m_decimator.draw(g);
+    }
+
     //------------------------------------------------------------------
     // IndexToX - convert the array index to the window x offset
     private int IndexToX(int nIndex, int nMaxIndex) {
@@ -715,6 +1031,15 @@ public class CoilSim20 extends javax.swing.JApplet
         return panel.x + nOffset;
     }
 
+    //------------------------------------------------------------------
+    // TimeToX - convert a time (seconds) to the window x offset, for
+    // events that happen between the clock ticks
+    private int TimeToX(double fTime) {
+        Rectangle panel = canvas_graph.getBounds();
+        int nOffset = (int)(panel.width * fTime / m_sim.getElapsedTime());
+        return panel.x + nOffset;
+    }
+
     //------------------------------------------------------------------
     // ValueToY - convert the value to the y offset in the
     // window to plot the point
@@ -736,6 +1061,10 @@ public class CoilSim20 extends javax.swing.JApplet
             Object object = event.getSource();
             if (object == buttonReset)
                 reset();
+            else if (object == buttonPlay)
+                togglePlayback();
+            else if (object == m_playTimer)
+                playbackFrame();
         }
     }
 
@@ -752,31 +1081,75 @@ public class CoilSim20 extends javax.swing.JApplet
                 checkboxCurrent_ItemStateChanged(event);
             else if (object == checkboxDiode)
                 checkboxDiode_ItemStateChanged(event);
+            else if (object == choiceSolver)
+                choiceSolver_ItemStateChanged(event);
+            else if (object == choiceSpeed)
+                m_playSpeed = PLAYBACK_SPEEDS[choiceSpeed.getSelectedIndex()];
+        }
+    }
+
+    //------------------------------------------------------------------
+    class SymMouse extends java.awt.event.MouseAdapter
+    {
+        public SymMouse() { }
+        public void mousePressed(java.awt.event.MouseEvent event) {
+            Rectangle r = m_graphBounds;
+            if (r != null && r.contains(event.getX(), event.getY()))
+                scrubTo(event.getX());
+        }
+        public void mouseDragged(java.awt.event.MouseEvent event) {
+            if (!Double.isNaN(m_cursorTime))
+                scrubTo(event.getX());
         }
     }
 
     /**
-     * When they click on the "show voltage" checkbox, just re-run the
-     * simulation. The PaintData() routine will examine the current state
-     * of the checkbox and draw/erase the graph of the voltage.
+     * When they click on the "show voltage" checkbox, just draw the graph
+     * again; the results haven't changed, so there's nothing to re-run.
+     * The PaintData() routine will examine the current state of the
+     * checkbox and draw/erase the graph of the voltage.
      * @param event
      */
     void checkboxVoltage_ItemStateChanged(java.awt.event.ItemEvent event) {
-        runSim();
+        invalidateGraph();
+        repaint();
     }
 
     /**
-     * When they click on the "show current" checkbox, just re-run the
-     * simulation. The PaintData() routine will examine the current state
-     * of the checkbox and draw/erase the graph of the current.
+     * When they click on the "show current" checkbox, just draw the graph
+     * again; the results haven't changed, so there's nothing to re-run.
+     * The PaintData() routine will examine the current state of the
+     * checkbox and draw/erase the graph of the current.
      * @param event
      */
     void checkboxCurrent_ItemStateChanged(java.awt.event.ItemEvent event) {
-        runSim();
+        invalidateGraph();
+        repaint();
     }
 
     void checkboxDiode_ItemStateChanged(java.awt.event.ItemEvent event) {
+        avoidRK4WithDiode();
+
         // re-running the simulation will include reading this new checkbox state
         runSim();
     }
+
+    void choiceSolver_ItemStateChanged(java.awt.event.ItemEvent event) {
+        // the item index is the solver number
+        m_solver = choiceSolver.getSelectedIndex();
+        avoidRK4WithDiode();
+        runSim();
+    }
+
+    /**
+     * The diode makes the circuit stiff, and RK4 can't handle it with
+     * our step size, so switch to the implicit solver.
+     * (runSim() won't use RK4 with the diode either, whatever m_solver says.)
+     */
+    private void avoidRK4WithDiode() {
+        if (checkboxDiode.getState() && m_solver == SOLVER_RK4) {
+            m_solver = SOLVER_IMPLICIT;
+            choiceSolver.select(m_solver);
+        }
+    }
 }
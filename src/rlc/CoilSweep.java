@@ -0,0 +1,262 @@
+package rlc;
+
+import coilsim.CoilCalculator;
+import coilsim.CoilGeometry;
+import coilsim.CoilResult;
+import coilsim.TopK;
+import coilsim.WireCatalog;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * CoilSweep joins the two simulators together. Instead of reading L and R off
+ * the inductor simulator and typing them into the RLC simulator's sliders,
+ * give it a list of coil sizes, a wire catalog and a capacitor bank, and it
+ * - works out L and R for every coil with every wire size (CoilCalculator),
+ * - adds the resistance of the rest of the circuit (wiring, switch, capacitor ESR),
+ * - fires the capacitor bank into each one (SimContext), heating the copper
+ *   from 20C as it goes (ThermalModel), and
+ * - keeps the best few designs, ranked by peak current, pulse width or I^2 t.
+ *
+ * I^2 t is heat in the coil and stress on the wire and any fuse, not push on
+ * the projectile, so it ranks the other way from peak current: least first.
+ *
+ * The designs are split among all the processors with fork/join. Each task
+ * owns its SimContext and solver; every design can also be handed to a
+ * listener as soon as it is finished, so nothing needs to be kept in memory
+ * apart from the best few.
+ *
+ * Typical usage:
+ *    CoilSweep sweep = new CoilSweep(
+ *        CoilSweep.grid(20, 60, 10, 20, 10, 80, 2),  // OD, ID, length (mm), 2 mm apart
+ *        WireCatalog.forType(WireCatalog.AWG),
+ *        400, 0.0047, 0.05, false);                  // volts, farads, external ohms, diode
+ *    sweep.setRanking(CoilSweep.RANK_PEAK_CURRENT);
+ *    CoilDischarge[] best = sweep.run();
+ */
+
+//----------------------------------------------------------------------
+//           CoilSweep
+//----------------------------------------------------------------------
+public final class CoilSweep
+{
+    // ways to rank the designs
+    public static final int RANK_PEAK_CURRENT = 0;      // highest peak current first
+    public static final int RANK_PULSE_WIDTH = 1;       // shortest pulse first
+    public static final int RANK_ACTION = 2;            // least I^2 t (heat in the coil, fuse/wire stress) first
+
+    // how many designs one task does before it stops splitting the work
+    private static final int RUNS_PER_TASK = 64;
+
+    // the coils
+    private final CoilGeometry[] m_geometries;
+    private final WireCatalog m_catalog;
+
+    // the capacitor bank and the rest of the circuit
+    private final double m_voltage;         // volts
+    private final double m_capacitance;     // farads
+    private final double m_resistance;      // ohms, not counting the coil
+    private final boolean m_diode;
+
+    private int m_nSteps = CoilSim20.NUM_STEPS;
+    private int m_nRanking = RANK_PEAK_CURRENT;
+    private int m_nTopK = 10;
+
+    // statistics of the last run
+    private long m_nRuns;
+
+    /**
+     * @param geometries = coil sizes to try
+     * @param catalog = wire sizes to wind each coil with
+     * @param voltage = initial capacitor charge (volts)
+     * @param capacitance = capacitor bank (farads)
+     * @param resistance = resistance of everything but the coil (ohms)
+     * @param diode = true if there is a diode across the coil
+     */
+    public CoilSweep(CoilGeometry[] geometries, WireCatalog catalog,
+                     double voltage, double capacitance, double resistance, boolean diode) {
+        m_geometries = geometries.clone();
+        m_catalog = catalog;
+        m_voltage = voltage;
+        m_capacitance = capacitance;
+        m_resistance = resistance;
+        m_diode = diode;
+    }
+
+    /**
+     * Helper function to build every coil size in a box, in whole steps,
+     * leaving out coils whose ID isn't smaller than the OD.
+     * @param minOD, maxOD = range of outside diameter (mm)
+     * @param minID, maxID = range of inside diameter (mm)
+     * @param minLength, maxLength = range of coil length (mm)
+     * @param step = distance between sizes (mm)
+     * @return the coil sizes, OD varying slowest and length fastest
+     */
+    public static CoilGeometry[] grid(float minOD, float maxOD, float minID, float maxID,
+                                      float minLength, float maxLength, float step) {
+        int nOD = (int)((maxOD - minOD) / step) + 1;
+        int nID = (int)((maxID - minID) / step) + 1;
+        int nLength = (int)((maxLength - minLength) / step) + 1;
+        CoilGeometry[] box = new CoilGeometry[nOD * nID * nLength];
+        int k = 0;
+        for (int o=0; o<nOD; o++) {
+            float od = minOD + o * step;
+            for (int i=0; i<nID; i++) {
+                float id = minID + i * step;
+                if (id >= od)
+                    break;
+                for (int l=0; l<nLength; l++) {
+                    box[k++] = new CoilGeometry(od, id, minLength + l * step);
+                }
+            }
+        }
+        CoilGeometry[] result = new CoilGeometry[k];
+        System.arraycopy(box, 0, result, 0, k);
+        return result;
+    }
+
+    /**
+     * @param nSteps = total number of divisions in each simulation (default 500, at least 2)
+     */
+    public void setSteps(int nSteps) {
+        if (nSteps < 2)
+            throw new IllegalArgumentException("need at least 2 steps");
+        m_nSteps = nSteps;
+    }
+
+    /**
+     * @param nRanking = RANK_PEAK_CURRENT, RANK_PULSE_WIDTH or RANK_ACTION
+     */
+    public void setRanking(int nRanking) {
+        m_nRanking = nRanking;
+    }
+
+    /**
+     * @param nTopK = how many designs to return (default 10)
+     */
+    public void setTopK(int nTopK) {
+        m_nTopK = nTopK;
+    }
+
+    /**
+     * @return total number of coil and wire combinations in the sweep
+     */
+    public int size() {
+        return m_geometries.length * m_catalog.size();
+    }
+
+    /**
+     * @return how many discharges were simulated in the last run; coils
+     * with no room for a single turn of wire aren't simulated
+     */
+    public long getRuns() {
+        return m_nRuns;
+    }
+
+    /**
+     * Run every design, using all processors.
+     * @return the best designs, best first
+     */
+    public CoilDischarge[] run() {
+        return run(ForkJoinPool.commonPool(), null);
+    }
+
+    /**
+     * Run every design, using the given pool of threads.
+     * @param listener = called with every design as soon as it is finished, or null.
+     * It is called from many threads at once, in no particular order.
+     * @return the best designs, best first
+     */
+    public CoilDischarge[] run(ForkJoinPool pool, Consumer<CoilDischarge> listener) {
+        LongAdder nRuns = new LongAdder();
+        TopK<CoilDischarge> best = pool.invoke(new SweepTask(listener, nRuns, 0, size()));
+        m_nRuns = nRuns.sum();
+        return best.toArray(CoilDischarge[]::new);
+    }
+
+    //----------------------------------------------------------------------
+    //           SweepTask
+    //----------------------------------------------------------------------
+    /**
+     * helper class runs a range of the designs, splitting it in half
+     * until the pieces are small enough to run on one thread.
+     * Design number 'index' is geometry index / catalog size, with wire index % catalog size.
+     */
+    private class SweepTask extends RecursiveTask<TopK<CoilDischarge>> {
+        private final Consumer<CoilDischarge> m_listener;
+        private final LongAdder m_nRuns;
+        private final int m_first;
+        private final int m_last;      // exclusive
+
+        SweepTask(Consumer<CoilDischarge> listener, LongAdder nRuns, int first, int last) {
+            m_listener = listener;
+            m_nRuns = nRuns;
+            m_first = first;
+            m_last = last;
+        }
+
+        protected TopK<CoilDischarge> compute() {
+            if (m_last - m_first > RUNS_PER_TASK) {
+                int middle = (m_first + m_last) >>> 1;
+                SweepTask left = new SweepTask(m_listener, m_nRuns, m_first, middle);
+                SweepTask right = new SweepTask(m_listener, m_nRuns, middle, m_last);
+                left.fork();
+                TopK<CoilDischarge> best = right.compute();
+                best.merge(left.join());
+                return best;
+            }
+
+            // context and solver belong to this task alone, re-used for every run
+            SimContext context = new SimContext(m_nSteps);
+            AnalyticSolver solver = new AnalyticSolver();   // RK4 as the coil heats, implicit for the diode
+            TopK<CoilDischarge> best = new TopK<CoilDischarge>(m_nTopK, CoilSweep.this::compare);
+            int nWires = m_catalog.size();
+
+            for (int ii=m_first; ii<m_last; ii++) {
+                CoilResult coil = CoilCalculator.calculate(m_geometries[ii / nWires], m_catalog.get(ii % nWires));
+                if (coil.TotalTurns() <= 0)
+                    continue;                   // wire is too thick for the winding space
+
+                double henries = coil.Inductance() / 1000.;
+                Circuit circuit = new Circuit(coil.Resistance() + m_resistance, henries, m_capacitance, m_diode);
+                float elapsed = Circuit.getTotalSimulationTime((float)henries, (float)m_capacitance);
+                double dt = elapsed / m_nSteps;
+
+                context.setThermalModel(ThermalModel.forCoil(coil, m_resistance), ThermalModel.REFERENCE_TEMPERATURE);
+                context.run(solver, circuit, m_voltage, 0, dt);
+                CoilDischarge design = new CoilDischarge(coil, RunSummary.summarize(context));
+                m_nRuns.increment();
+
+                best.offer(design);
+                if (m_listener != null)
+                    m_listener.accept(design);
+            }
+            return best;
+        }
+    }
+
+    /**
+     * best first by the chosen ranking, then least resistance, then a fixed
+     * order by size and wire so that the answer never depends on which
+     * thread found what
+     */
+    private int compare(CoilDischarge a, CoilDischarge b) {
+        int c;
+        switch (m_nRanking) {
+            case RANK_PULSE_WIDTH: c = Double.compare(a.getPulseWidth(), b.getPulseWidth()); break;
+            case RANK_ACTION:      c = Double.compare(a.getAction(), b.getAction()); break;
+            default:               c = Double.compare(b.getPeakCurrent(), a.getPeakCurrent()); break;
+        }
+        CoilResult ca = a.getCoil();
+        CoilResult cb = b.getCoil();
+        if (c == 0) c = Float.compare(ca.Resistance(), cb.Resistance());
+        if (c == 0) c = Float.compare(ca.Geometry().OD(), cb.Geometry().OD());
+        if (c == 0) c = Float.compare(ca.Geometry().ID(), cb.Geometry().ID());
+        if (c == 0) c = Float.compare(ca.Geometry().Length(), cb.Geometry().Length());
+        if (c == 0) c = ca.Wire().Name().compareTo(cb.Wire().Name());
+        return c;
+    }
+} // end class CoilSweep
@@ -0,0 +1,262 @@
+package rlc;
+
+/**
+ * DormandPrince45 runs the RLC simulation with an embedded Runge-Kutta 4(5)
+ * pair (Dormand & Prince, 1980) and automatic step size control.
+ *
+ * Every step computes a 5th order solution and a 4th order solution from the
+ * same seven slopes; their difference estimates the local error. Steps whose
+ * error is inside the tolerance are accepted, the rest are retried with a
+ * smaller step. This lets the integrator stride across the smooth tail of the
+ * discharge and creep through the diode turn-on.
+ *
+ * The steps no longer line up with the clock ticks the caller asked for, so
+ * the state at each tick comes from the method's "dense output", a 4th order
+ * polynomial that interpolates within the accepted step (Hairer, Norsett &
+ * Wanner, "Solving Ordinary Differential Equations I", section II.6).
+ *
+ * Like RK4Kernel, a run allocates nothing. The counters describing the last
+ * run are kept in this object, so use one instance per thread.
+ */
+
+//----------------------------------------------------------------------
+//           DormandPrince45
+//----------------------------------------------------------------------
+public final class DormandPrince45 implements Solver
+{
+    // Butcher tableau (the circuit does not depend on time, so no nodes are needed)
+    private static final double A21 = 1./5;
+    private static final double A31 = 3./40,        A32 = 9./40;
+    private static final double A41 = 44./45,       A42 = -56./15,       A43 = 32./9;
+    private static final double A51 = 19372./6561,  A52 = -25360./2187,  A53 = 64448./6561,  A54 = -212./729;
+    private static final double A61 = 9017./3168,   A62 = -355./33,      A63 = 46732./5247,  A64 = 49./176,
+                                A65 = -5103./18656;
+    private static final double A71 = 35./384,      A73 = 500./1113,     A74 = 125./192,     A75 = -2187./6784,
+                                A76 = 11./84;
+
+    // difference between the 5th and 4th order weights, gives the error estimate
+    private static final double E1 = 71./57600,     E3 = -71./16695,     E4 = 71./1920,      E5 = -17253./339200,
+                                E6 = 22./525,       E7 = -1./40;
+
+    // dense output weights
+    private static final double D1 = -12715105075./11282082432.,  D3 = 87487479700./32700410799.,
+                                D4 = -10690763975./1880347072.,   D5 = 701980252875./199316789632.,
+                                D6 = -1453857185./822651844.,     D7 = 69997945./29380423.;
+
+    // step size controller
+    private static final double SAFETY = 0.9;       // aim a little below the tolerance
+    private static final double MIN_FACTOR = 0.2;   // never shrink a step more than 5x at once
+    private static final double MAX_FACTOR = 5.0;   // never grow a step more than 5x at once
+    private static final double MIN_STEP = 1E-12;   // smallest step, as fraction of total time
+    private static final int MAX_ATTEMPTS = 10000000;// give up after this many steps in one run
+
+    private final double m_rtol;        // relative tolerance
+    private final double m_atol;        // absolute tolerance (volts or amps)
+
+    // statistics of the last run
+    private int m_nAccepted;
+    private int m_nRejected;
+    private boolean m_bComplete;        // false = had to give up before the end
+    private int m_nForced;              // steps accepted over tolerance, because h hit the minimum
+
+    /**
+     * @param rtol = relative tolerance on each state variable, e.g. 1E-6
+     * @param atol = absolute tolerance on each state variable, e.g. 1E-6
+     */
+    public DormandPrince45(double rtol, double atol) {
+        m_rtol = rtol;
+        m_atol = atol;
+    }
+
+    /**
+     * @return number of steps accepted during the last run
+     */
+    public int getAcceptedSteps() {
+        return m_nAccepted;
+    }
+
+    /**
+     * @return number of steps that failed the error test during the last run
+     */
+    public int getRejectedSteps() {
+        return m_nRejected;
+    }
+
+    /**
+     * @return number of steps in the last run that failed the error test
+     * but were accepted anyway, because the step size couldn't get any
+     * smaller; if this isn't 0 the run is less accurate than asked for
+     */
+    public int getForcedSteps() {
+        return m_nForced;
+    }
+
+    /**
+     * @return true if the last run reached the end and every step met the tolerance
+     */
+    public boolean isAccurate() {
+        return m_bComplete && m_nForced == 0;
+    }
+
+    /**
+     * @return true if the last run reached the end, false if the step size
+     * collapsed (e.g. a stiff diode turn-on) and the remaining ticks just
+     * repeat the last good state
+     */
+    public boolean isComplete() {
+        return m_bComplete;
+    }
+
+    /**
+     * Run the simulation from the initial state in volts[0] and amps[0],
+     * taking as many steps as the tolerance needs, and interpolating the
+     * states at ticks [1] ... [nSamples-1].
+     */
+    public void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt) {
+        solve(c, volts, amps, nSamples, dt, null);
+    }
+
+    /**
+     * As above, looking for events inside every accepted step. The slopes at
+     * both ends of a step are k1 and k7, which we have already. If the events
+     * heat the coil, each step uses the resistance the coil has at its start.
+     */
+    public void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt, EventDetector events) {
+        m_nAccepted = 0;
+        m_nRejected = 0;
+        m_nForced = 0;
+        m_bComplete = true;
+        if (events != null) {
+            events.reset();
+            events.setTicks(nSamples);
+        }
+        if (nSamples < 2)
+            return;
+
+        final double tEnd = dt * (nSamples - 1);
+        final double hMin = tEnd * MIN_STEP;
+
+        double t = 0;
+        double v = volts[0];
+        double i = amps[0];
+        double k1V = c.dV_dt(v, i);
+        double k1I = c.dI_dt(v, i);
+
+        // first guess: one tick, or less if the state changes quickly
+        double h = dt;
+        double rate = Math.max(Math.abs(k1V) / (m_atol + m_rtol * Math.abs(v)),
+                               Math.abs(k1I) / (m_atol + m_rtol * Math.abs(i)));
+        if (rate * h > 0.01)
+            h = 0.01 / rate;
+
+        int next = 1;                   // next tick to be filled in
+        while (next < nSamples) {
+            boolean lastStep = false;
+            if (t + h >= tEnd) {
+                h = tEnd - t;
+                lastStep = true;
+            }
+
+            // a heating coil's resistance has gone up since k7 of the last step
+            double R = (events == null) ? c.getResistance() : events.getResistance(c);
+            k1I = c.dI_dt(v, i, R);
+
+            // the seven stages (the last is also the first of the next step)
+            double yV = v + h * (A21*k1V);
+            double yI = i + h * (A21*k1I);
+            double k2V = c.dV_dt(yV, yI),  k2I = c.dI_dt(yV, yI, R);
+
+            yV = v + h * (A31*k1V + A32*k2V);
+            yI = i + h * (A31*k1I + A32*k2I);
+            double k3V = c.dV_dt(yV, yI),  k3I = c.dI_dt(yV, yI, R);
+
+            yV = v + h * (A41*k1V + A42*k2V + A43*k3V);
+            yI = i + h * (A41*k1I + A42*k2I + A43*k3I);
+            double k4V = c.dV_dt(yV, yI),  k4I = c.dI_dt(yV, yI, R);
+
+            yV = v + h * (A51*k1V + A52*k2V + A53*k3V + A54*k4V);
+            yI = i + h * (A51*k1I + A52*k2I + A53*k3I + A54*k4I);
+            double k5V = c.dV_dt(yV, yI),  k5I = c.dI_dt(yV, yI, R);
+
+            yV = v + h * (A61*k1V + A62*k2V + A63*k3V + A64*k4V + A65*k5V);
+            yI = i + h * (A61*k1I + A62*k2I + A63*k3I + A64*k4I + A65*k5I);
+            double k6V = c.dV_dt(yV, yI),  k6I = c.dI_dt(yV, yI, R);
+
+            double newV = v + h * (A71*k1V + A73*k3V + A74*k4V + A75*k5V + A76*k6V);
+            double newI = i + h * (A71*k1I + A73*k3I + A74*k4I + A75*k5I + A76*k6I);
+            double k7V = c.dV_dt(newV, newI),  k7I = c.dI_dt(newV, newI, R);
+
+            // estimate the local error, scaled by the tolerance (RMS norm)
+            double errV = h * (E1*k1V + E3*k3V + E4*k4V + E5*k5V + E6*k6V + E7*k7V)
+                        / (m_atol + m_rtol * Math.max(Math.abs(v), Math.abs(newV)));
+            double errI = h * (E1*k1I + E3*k3I + E4*k4I + E5*k5I + E6*k6I + E7*k7I)
+                        / (m_atol + m_rtol * Math.max(Math.abs(i), Math.abs(newI)));
+            double err = Math.sqrt((errV*errV + errI*errI) / 2);
+            boolean finite = !Double.isNaN(err) && !Double.isInfinite(err);
+
+            if (!finite && h <= hMin || m_nAccepted + m_nRejected >= MAX_ATTEMPTS) {
+                // hopeless: this circuit needs a stiff solver, so stop right here
+                m_bComplete = false;
+                for (; next < nSamples; next++) {
+                    volts[next] = v;
+                    amps[next] = i;
+                }
+                break;
+            }
+
+            if (err <= 1.0 || h <= hMin) {
+                // accepted: look for events, then interpolate every tick that falls inside this step
+                if (!(err <= 1.0))
+                    m_nForced++;        // only because it can't get any smaller
+                double tNew = lastStep ? tEnd : t + h;
+                boolean stop = events != null
+                            && events.check(c, t, h, v, i, k1V, k1I, newV, newI, k7V, k7I);
+                if (stop) {
+                    // stop at the first tick at or after the event
+                    tNew = Math.min(tNew, Math.ceil(events.getStopTime() / dt) * dt);
+                }
+                double r2V = newV - v,  r2I = newI - i;
+                double r3V = h*k1V - r2V,  r3I = h*k1I - r2I;
+                double r4V = r2V - h*k7V - r3V,  r4I = r2I - h*k7I - r3I;
+                double r5V = h * (D1*k1V + D3*k3V + D4*k4V + D5*k5V + D6*k6V + D7*k7V);
+                double r5I = h * (D1*k1I + D3*k3I + D4*k4I + D5*k5I + D6*k6I + D7*k7I);
+
+                while (next < nSamples && ((lastStep && !stop) || next * dt <= tNew)) {
+                    double s = (next * dt - t) / h;
+                    if (s > 1)
+                        s = 1;
+                    double s1 = 1 - s;
+                    volts[next] = v + s * (r2V + s1 * (r3V + s * (r4V + s1 * r5V)));
+                    amps[next]  = i + s * (r2I + s1 * (r3I + s * (r4I + s1 * r5I)));
+                    next++;
+                }
+                if (stop) {
+                    m_nAccepted++;
+                    events.setTicks(next);
+                    break;
+                }
+
+                t = tNew;
+                v = newV;
+                i = newI;
+                k1V = k7V;
+                k1I = k7I;
+                m_nAccepted++;
+            } else {
+                m_nRejected++;
+            }
+
+            // choose the next step size from the error estimate
+            double factor;
+            if (err == 0)
+                factor = MAX_FACTOR;
+            else if (!finite)
+                factor = MIN_FACTOR;
+            else
+                factor = Math.min(MAX_FACTOR, Math.max(MIN_FACTOR, SAFETY * Math.pow(err, -0.2)));
+            if (err > 1.0 && factor > 1.0)
+                factor = 1.0;           // never grow right after a rejection
+            h = Math.max(h * factor, hMin);
+        }
+    }
+} // end class DormandPrince45
@@ -0,0 +1,350 @@
+package rlc;
+
+/**
+ * EventDetector watches a simulation while it runs, and finds the exact
+ * time of interesting events, instead of scanning the ticks afterwards:
+ * - CURRENT_PEAK        dI/dt = 0 with the current at a maximum
+ * - CURRENT_ZERO        current passes through zero
+ * - VOLTAGE_ZERO        capacitor voltage passes through zero
+ * - CURRENT_THRESHOLD   current passes through a level chosen by the user
+ * - VOLTAGE_THRESHOLD   voltage passes through a level chosen by the user
+ * - HALF_PEAK           current falls back through half of its first peak,
+ *                       the end of the pulse (only looked for once the peak is found)
+ *
+ * After each step the solver hands us the state and slope at both ends of
+ * the step. We build a cubic (Hermite) interpolant across the step, and if
+ * an event function changes sign we find its root with the Illinois
+ * (modified regula falsi) method. So events are found to within rounding,
+ * not to the nearest of 500 ticks.
+ *
+ * The integral of current squared (I^2 t, see getAction) is added up step
+ * by step too, by Simpson's rule on the same interpolant, so nothing needs
+ * to go back over the ticks afterwards. If a ThermalModel is attached, each
+ * step's I^2 t heats the coil, and the solver asks getResistance() for the
+ * hotter coil's resistance before its next step.
+ *
+ * Any event can also end the run, e.g. stop at the first zero-crossing when
+ * that is all we wanted to know. The first occurrence of each event is kept,
+ * along with how many times it happened. Use one detector per thread.
+ *
+ * A run can also be cancelled from another thread with setCancelled(): the
+ * solver stops at the end of the step it is on, as if an event had stopped
+ * it, and the results are not worth looking at.
+ */
+
+//----------------------------------------------------------------------
+//           EventDetector
+//----------------------------------------------------------------------
+public final class EventDetector
+{
+    // the events we know about
+    public static final int CURRENT_PEAK = 0;
+    public static final int CURRENT_ZERO = 1;
+    public static final int VOLTAGE_ZERO = 2;
+    public static final int CURRENT_THRESHOLD = 3;
+    public static final int VOLTAGE_THRESHOLD = 4;
+    public static final int HALF_PEAK = 5;
+    public static final int NumberOfEvents = 6;
+
+    // root finding
+    private static final int MAX_ITERATIONS = 60;
+    private static final double TOLERANCE = 1E-13;    // fraction of a step
+
+    // what to look for
+    private double m_currentThreshold = Double.NaN;   // amps, NaN = don't look
+    private double m_voltageThreshold = Double.NaN;   // volts, NaN = don't look
+    private int m_stopMask;                           // bit per event that ends the run
+
+    // what we found: first occurrence of each event
+    private final double[] m_time = new double[NumberOfEvents];    // seconds
+    private final double[] m_volts = new double[NumberOfEvents];   // capacitor voltage at the time
+    private final double[] m_amps = new double[NumberOfEvents];    // inductor current at the time
+    private final int[] m_count = new int[NumberOfEvents];
+    private boolean m_stopped;
+    private double m_stopTime;
+    private int m_nTicks;
+    private double m_action;                          // amp^2 seconds so far
+    private ThermalModel m_heat;                      // null = the resistance doesn't change
+    private double m_ambient;                         // C, coil temperature at the start of a run
+    private volatile boolean m_cancelled;             // set from another thread; reset() leaves it alone
+
+    public EventDetector() {
+        reset();
+    }
+
+    /**
+     * @param amps = watch for the current passing this level, NaN to stop watching
+     */
+    public void setCurrentThreshold(double amps) {
+        m_currentThreshold = amps;
+    }
+
+    /**
+     * @param volts = watch for the voltage passing this level, NaN to stop watching
+     */
+    public void setVoltageThreshold(double volts) {
+        m_voltageThreshold = volts;
+    }
+
+    /**
+     * @param event = one of the event constants
+     * @param stop = true to end the run the first time this event happens
+     */
+    public void setStopOn(int event, boolean stop) {
+        if (stop)
+            m_stopMask |= (1 << event);
+        else
+            m_stopMask &= ~(1 << event);
+    }
+
+    /**
+     * @param heat = model of the coil to heat during each run, or null for a fixed resistance
+     * @param ambient = temperature of the coil at the start of each run (C)
+     */
+    public void setThermalModel(ThermalModel heat, double ambient) {
+        m_heat = heat;
+        m_ambient = ambient;
+        if (heat != null)
+            heat.reset(ambient);
+    }
+
+    /**
+     * @return the model heating the coil, or null if there isn't one
+     */
+    public ThermalModel getThermalModel()   { return m_heat; }
+
+    /**
+     * @param c = component values
+     * @return resistance for the next step: the circuit's own, or the coil's
+     * as it is now if a ThermalModel is heating it (ohms)
+     */
+    public double getResistance(Circuit c) {
+        return (m_heat == null) ? c.getResistance() : m_heat.getResistance();
+    }
+
+    /**
+     * @param cancelled = true to stop the run in progress (or the next one) after its current step
+     */
+    public void setCancelled(boolean cancelled) {
+        m_cancelled = cancelled;
+    }
+
+    /**
+     * @return true if the run was, or is about to be, cancelled
+     */
+    public boolean isCancelled()            { return m_cancelled; }
+
+    /**
+     * Forget everything found so far; solvers call this at the start of a run.
+     */
+    public void reset() {
+        for (int e=0; e<NumberOfEvents; e++) {
+            m_time[e] = Double.NaN;
+            m_volts[e] = Double.NaN;
+            m_amps[e] = Double.NaN;
+            m_count[e] = 0;
+        }
+        m_stopped = false;
+        m_stopTime = Double.NaN;
+        m_nTicks = 0;
+        m_action = 0;
+        if (m_heat != null)
+            m_heat.reset(m_ambient);
+    }
+
+    public boolean hasOccurred(int event)   { return m_count[event] > 0; }
+    public int getCount(int event)          { return m_count[event]; }
+
+    /**
+     * @return time (seconds) of the first occurrence of the event, NaN if none
+     */
+    public double getTime(int event)        { return m_time[event]; }
+
+    /**
+     * @return inductor current (amps) at the first occurrence of the event
+     */
+    public double getCurrent(int event)     { return m_amps[event]; }
+
+    /**
+     * @return capacitor voltage (volts) at the first occurrence of the event
+     */
+    public double getVoltage(int event)     { return m_volts[event]; }
+
+    /**
+     * @return true if the last run was ended early by an event
+     */
+    public boolean isStopped()              { return m_stopped; }
+    public double getStopTime()             { return m_stopTime; }
+
+    /**
+     * @return number of ticks the solver filled in; less than asked for
+     * if the run was stopped early
+     */
+    public int getTicks()                   { return m_nTicks; }
+
+    void setTicks(int nTicks) {
+        m_nTicks = nTicks;
+    }
+
+    /**
+     * Replace the first occurrence of an event with a better one, for a
+     * solver that knows exactly when it happened (see AnalyticSolver). If
+     * the run stopped on it, it stopped at the better time too.
+     */
+    void correct(int event, double t, double volts, double amps) {
+        if (m_count[event] == 0)
+            return;
+        if (m_stopped && m_stopTime == m_time[event])
+            m_stopTime = t;
+        m_time[event] = t;
+        m_volts[event] = volts;
+        m_amps[event] = amps;
+    }
+
+    /**
+     * @return integral of current squared over the steps checked so far
+     * (amp^2 seconds); times the resistance, that's the heat in the circuit
+     */
+    public double getAction()               { return m_action; }
+
+    /**
+     * Look for events during one step of the solver.
+     *
+     * @param c = component values
+     * @param t0 = time at the start of the step (seconds)
+     * @param h = length of the step (seconds)
+     * @param v0, i0 = state at the start of the step
+     * @param dv0, di0 = slope at the start of the step
+     * @param v1, i1 = state at the end of the step
+     * @param dv1, di1 = slope at the end of the step
+     * @return true if an event asked for the run to stop
+     */
+    public boolean check(Circuit c, double t0, double h,
+                         double v0, double i0, double dv0, double di0,
+                         double v1, double i1, double dv1, double di1) {
+        if (m_cancelled) {
+            m_stopped = true;
+            m_stopTime = t0 + h;
+            return true;
+        }
+        double stopAt = Double.POSITIVE_INFINITY;
+
+        // every event function is  a*V + b*I + k  for some constants
+        double R = getResistance(c);
+
+        // Simpson's rule for the integral of I^2, with the midpoint from the interpolant
+        double iMid = (i0 + i1) / 2 + h * (di0 - di1) / 8;
+        double action = h / 6 * (i0*i0 + 4*iMid*iMid + i1*i1);
+        m_action += action;
+        if (m_heat != null)
+            m_heat.addStep(action);     // a hotter coil for the next step
+        double invL = 1. / c.getInductance();
+        for (int e=0; e<NumberOfEvents; e++) {
+            double a, b, k;
+            switch (e) {
+                case CURRENT_PEAK:      a = invL; b = -R * invL; k = 0; break;
+                case CURRENT_ZERO:      a = 0;    b = 1;         k = 0; break;
+                case VOLTAGE_ZERO:      a = 1;    b = 0;         k = 0; break;
+                case CURRENT_THRESHOLD: a = 0;    b = 1;         k = -m_currentThreshold; break;
+                case VOLTAGE_THRESHOLD: a = 1;    b = 0;         k = -m_voltageThreshold; break;
+                default:                a = 0;    b = 1;         k = -m_amps[CURRENT_PEAK] / 2; break;
+            }
+            if (Double.isNaN(k))
+                continue;       // user hasn't asked for this threshold, or no peak yet
+
+            double g0 = a * v0 + b * i0 + k;
+            double g1 = a * v1 + b * i1 + k;
+            boolean crossed = (g0 > 0 && g1 <= 0) || (g0 < 0 && g1 >= 0);
+            if (e == CURRENT_PEAK || e == HALF_PEAK)
+                crossed = (g0 > 0 && g1 <= 0);     // only maxima, not minima; only on the way down
+            if (!crossed)
+                continue;
+
+            double s = findRoot(a, b, k, g0, g1, h, v0, i0, dv0, di0, v1, i1, dv1, di1);
+            double t = t0 + s * h;
+            if (m_count[e] == 0) {
+                m_time[e] = t;
+                m_volts[e] = hermite(s, h, v0, dv0, v1, dv1);
+                m_amps[e] = hermite(s, h, i0, di0, i1, di1);
+            }
+            m_count[e]++;
+
+            if ((m_stopMask & (1 << e)) != 0 && t < stopAt)
+                stopAt = t;
+        }
+
+        if (stopAt != Double.POSITIVE_INFINITY) {
+            m_stopped = true;
+            m_stopTime = stopAt;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Find when the current passed through a level during one step, from the
+     * states at both ends, e.g. for a crossing that could only be known once
+     * the run was over. The slopes come from the circuit.
+     *
+     * @param c = component values
+     * @param t0 = time at the start of the step (seconds)
+     * @param h = length of the step (seconds)
+     * @param v0, i0 = state at the start of the step
+     * @param v1, i1 = state at the end of the step; the level must lie between i0 and i1
+     * @param amps = the level (amps)
+     * @return time the current passed through the level (seconds)
+     */
+    public static double crossingTime(Circuit c, double t0, double h,
+                                      double v0, double i0, double v1, double i1, double amps) {
+        double s = findRoot(0, 1, -amps, i0 - amps, i1 - amps, h,
+                            v0, i0, c.dV_dt(v0, i0), c.dI_dt(v0, i0),
+                            v1, i1, c.dV_dt(v1, i1), c.dI_dt(v1, i1));
+        return t0 + s * h;
+    }
+
+    /**
+     * Illinois method on  g(s) = a*V(s) + b*I(s) + k,  0 <= s <= 1
+     * @return fraction of the step where g is zero
+     */
+    private static double findRoot(double a, double b, double k, double g0, double g1, double h,
+                                   double v0, double i0, double dv0, double di0,
+                                   double v1, double i1, double dv1, double di1) {
+        double sLo = 0, gLo = g0;
+        double sHi = 1, gHi = g1;
+        if (gHi == 0)
+            return 1;
+
+        int side = 0;
+        double s = 1;
+        for (int iter=0; iter<MAX_ITERATIONS && sHi - sLo > TOLERANCE; iter++) {
+            s = (sLo * gHi - sHi * gLo) / (gHi - gLo);
+            double g = a * hermite(s, h, v0, dv0, v1, dv1) + b * hermite(s, h, i0, di0, i1, di1) + k;
+            if (g == 0)
+                return s;
+            if ((g > 0) == (gLo > 0)) {
+                sLo = s;
+                gLo = g;
+                if (side == -1)
+                    gHi /= 2;       // Illinois: don't let the far end get stuck
+                side = -1;
+            } else {
+                sHi = s;
+                gHi = g;
+                if (side == +1)
+                    gLo /= 2;
+                side = +1;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * cubic Hermite interpolation across a step of length h
+     */
+    private static double hermite(double s, double h, double y0, double dy0, double y1, double dy1) {
+        double s2 = s * s;
+        double s3 = s2 * s;
+        return (2*s3 - 3*s2 + 1) * y0 + (s3 - 2*s2 + s) * h * dy0
+             + (-2*s3 + 3*s2) * y1 + (s3 - s2) * h * dy1;
+    }
+} // end class EventDetector
@@ -0,0 +1,145 @@
+package rlc;
+
+/**
+ * Histogram counts values into evenly spaced bins, so that millions of
+ * results can be boiled down to a distribution without keeping any of them.
+ * Values below or above the range are counted too, along with the
+ * smallest and largest value seen, the mean and the standard deviation.
+ *
+ * Percentiles are estimated by linear interpolation inside a bin, so they
+ * are good to about one bin width.
+ *
+ * Two histograms with the same bins can be merged, e.g. one from each
+ * thread. A histogram is not thread-safe; give each thread its own and
+ * merge them at the end.
+ */
+
+//----------------------------------------------------------------------
+//           Histogram
+//----------------------------------------------------------------------
+public final class Histogram
+{
+    private final double m_min;         // start of the first bin
+    private final double m_max;         // end of the last bin
+    private final double m_binsPerUnit; // nBins / (max - min)
+    private final long[] m_bins;
+    private long m_nBelow;              // values < min
+    private long m_nAbove;              // values >= max
+
+    // running statistics of every value added
+    private long m_nCount;
+    private double m_sum;
+    private double m_sumOfSquares;
+    private double m_smallest = Double.POSITIVE_INFINITY;
+    private double m_largest = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param min = start of the first bin
+     * @param max = end of the last bin
+     * @param nBins = number of bins
+     */
+    public Histogram(double min, double max, int nBins) {
+        if (!(max > min) || nBins < 1)
+            throw new IllegalArgumentException("need max > min and at least one bin");
+        m_min = min;
+        m_max = max;
+        m_binsPerUnit = nBins / (max - min);
+        m_bins = new long[nBins];
+    }
+
+    /**
+     * @return an empty histogram with the same bins as this one
+     */
+    public Histogram emptyCopy() {
+        return new Histogram(m_min, m_max, m_bins.length);
+    }
+
+    /**
+     * @param value = one more value to count; NaN is ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value))
+            return;
+        if (value < m_min)
+            m_nBelow++;
+        else if (value >= m_max)
+            m_nAbove++;
+        else
+            m_bins[Math.min((int)((value - m_min) * m_binsPerUnit), m_bins.length - 1)]++;
+
+        m_nCount++;
+        m_sum += value;
+        m_sumOfSquares += value * value;
+        if (value < m_smallest) m_smallest = value;
+        if (value > m_largest) m_largest = value;
+    }
+
+    /**
+     * Add everything counted by another histogram with the same bins.
+     */
+    public void merge(Histogram other) {
+        if (other.m_min != m_min || other.m_max != m_max || other.m_bins.length != m_bins.length)
+            throw new IllegalArgumentException("histograms have different bins");
+        for (int ii=0; ii<m_bins.length; ii++) {
+            m_bins[ii] += other.m_bins[ii];
+        }
+        m_nBelow += other.m_nBelow;
+        m_nAbove += other.m_nAbove;
+        m_nCount += other.m_nCount;
+        m_sum += other.m_sum;
+        m_sumOfSquares += other.m_sumOfSquares;
+        m_smallest = Math.min(m_smallest, other.m_smallest);
+        m_largest = Math.max(m_largest, other.m_largest);
+    }
+
+    /**
+     * @param percent = 0 ... 100, e.g. 50 for the median
+     * @return the value that this percentage of the values are below, or NaN if empty
+     */
+    public double percentile(double percent) {
+        if (m_nCount == 0)
+            return Double.NaN;
+        double target = percent / 100. * m_nCount;
+        if (target <= m_nBelow)
+            return m_smallest;              // somewhere below the bins; best we know
+
+        double cumulative = m_nBelow;
+        double width = 1. / m_binsPerUnit;
+        for (int ii=0; ii<m_bins.length; ii++) {
+            if (m_bins[ii] > 0 && cumulative + m_bins[ii] >= target) {
+                double fraction = (target - cumulative) / m_bins[ii];
+                double value = m_min + (ii + fraction) * width;
+                return Math.max(m_smallest, Math.min(m_largest, value));
+            }
+            cumulative += m_bins[ii];
+        }
+        return m_largest;                   // somewhere above the bins
+    }
+
+    public long getCount()              { return m_nCount; }
+    public long getBelow()              { return m_nBelow; }
+    public long getAbove()              { return m_nAbove; }
+    public double getSmallest()         { return m_smallest; }
+    public double getLargest()          { return m_largest; }
+    public int getBins()                { return m_bins.length; }
+    public long getBin(int index)       { return m_bins[index]; }
+
+    /**
+     * @return the value where a bin starts
+     */
+    public double getBinStart(int index) {
+        return m_min + index / m_binsPerUnit;
+    }
+
+    public double getMean() {
+        return (m_nCount > 0) ? m_sum / m_nCount : Double.NaN;
+    }
+
+    public double getStandardDeviation() {
+        if (m_nCount < 2)
+            return 0;
+        double mean = m_sum / m_nCount;
+        double variance = (m_sumOfSquares - m_nCount * mean * mean) / (m_nCount - 1);
+        return Math.sqrt(Math.max(variance, 0));
+    }
+} // end class Histogram
@@ -0,0 +1,221 @@
+package rlc;
+
+/**
+ * ImplicitTRBDF2 runs the RLC simulation with the TR-BDF2 method, an
+ * implicit integrator that stays stable for stiff circuits.
+ *
+ * The protection diode makes the circuit stiff: once it conducts, its
+ * exponential current changes by a factor of ten for every 0.2 volts, and an
+ * explicit method like RK4 must take tiny steps or it oscillates and blows up.
+ * An implicit method instead solves for the state at the END of each step,
+ * which keeps it stable with steps thousands of times larger.
+ *
+ * Each step is done in two stages, with gamma = 2 - sqrt(2):
+ *  (1) trapezoidal rule from t to t + gamma*h
+ *  (2) second order backward difference (BDF2) from there to t + h
+ * and each stage is solved with Newton's method, using the analytic
+ * Jacobian of the circuit from Circuit.dVdot_dV().
+ *
+ * If Newton's method does not converge, the step is split in half and tried
+ * again. Like the other solvers a run allocates nothing, and the counters
+ * describing the last run are kept in this object, so use one instance per
+ * thread.
+ */
+
+//----------------------------------------------------------------------
+//           ImplicitTRBDF2
+//----------------------------------------------------------------------
+public final class ImplicitTRBDF2 implements Solver
+{
+    // method coefficients
+    private static final double GAMMA = 2. - Math.sqrt(2.);
+    private static final double D = (1. - GAMMA) / (2. - GAMMA);         // BDF2 stage slope weight (also = GAMMA/2)
+    private static final double W1 = 1. / (GAMMA * (2. - GAMMA));       // BDF2 weight on the middle state
+    private static final double W0 = (1. - GAMMA) * (1. - GAMMA) / (GAMMA * (2. - GAMMA)); // ... and on the old state
+
+    // Newton iteration
+    private static final int MAX_ITERATIONS = 50;
+    private static final double TOLERANCE = 1E-10;      // relative change that counts as converged
+    private static final int MAX_HALVINGS = 20;         // split a tick into at most 2^20 steps
+
+    // keep Newton from leaping far up the diode's exponential curve in one go
+    private static final double DIODE_LIMIT_VOLTS = 0.5;    // only limit above this forward voltage
+    private static final double DIODE_MAX_STEP = 0.2;       // volts per iteration
+
+    // result of the last stage or step, so we don't have to allocate anything to return it
+    private double m_V;
+    private double m_I;
+
+    // resistance for the tick in progress (ohms), which goes up if the events heat the coil
+    private double m_R;
+
+    // statistics of the last run
+    private int m_nSteps;               // steps taken (at least one per tick)
+    private int m_nIterations;          // total Newton iterations
+    private int m_nFailures;            // steps that never converged, even after halving
+
+    /**
+     * @return number of steps taken during the last run
+     */
+    public int getSteps() {
+        return m_nSteps;
+    }
+
+    /**
+     * @return number of Newton iterations during the last run
+     */
+    public int getIterations() {
+        return m_nIterations;
+    }
+
+    /**
+     * @return number of steps during the last run where Newton's method
+     * never converged; zero unless the circuit is completely unreasonable
+     */
+    public int getFailures() {
+        return m_nFailures;
+    }
+
+    /**
+     * Run the simulation from the initial state in volts[0] and amps[0],
+     * taking one implicit step per tick (more if Newton's method needs it).
+     */
+    public void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt) {
+        solve(c, volts, amps, nSamples, dt, null);
+    }
+
+    /**
+     * As above, looking for events between the ticks. If the events heat the
+     * coil, each tick uses the resistance the coil has at its start.
+     */
+    public void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt, EventDetector events) {
+        m_nSteps = 0;
+        m_nIterations = 0;
+        m_nFailures = 0;
+        if (events != null)
+            events.reset();
+        m_R = c.getResistance();
+        double dV0 = c.dV_dt(volts[0], amps[0]);
+        for (int ii=1; ii<nSamples; ii++) {
+            if (events != null)
+                m_R = events.getResistance(c);
+            advance(c, volts[ii-1], amps[ii-1], dt, 0);
+            volts[ii] = m_V;
+            amps[ii] = m_I;
+
+            if (events != null) {
+                double dI0 = c.dI_dt(volts[ii-1], amps[ii-1], m_R);
+                double dV1 = c.dV_dt(m_V, m_I);
+                double dI1 = c.dI_dt(m_V, m_I, m_R);
+                if (events.check(c, (ii-1) * dt, dt, volts[ii-1], amps[ii-1], dV0, dI0,
+                                                     volts[ii], amps[ii], dV1, dI1)) {
+                    events.setTicks(ii + 1);
+                    return;
+                }
+                dV0 = dV1;
+            }
+        }
+        if (events != null)
+            events.setTicks(nSamples);
+    }
+
+    /**
+     * Advance the state by h seconds, splitting the interval in two if one
+     * step can't do it. Result is left in m_V, m_I.
+     */
+    private void advance(Circuit c, double v, double i, double h, int depth) {
+        if (step(c, v, i, h))
+            return;
+
+        if (depth >= MAX_HALVINGS) {
+            // give up and keep Newton's last guess
+            m_nFailures++;
+            m_nSteps++;
+            return;
+        }
+        advance(c, v, i, h / 2, depth + 1);
+        advance(c, m_V, m_I, h / 2, depth + 1);
+    }
+
+    /**
+     * One TR-BDF2 step of h seconds. Result is left in m_V, m_I.
+     * @return true if both stages converged
+     */
+    private boolean step(Circuit c, double v, double i, double h) {
+        // (1) trapezoidal rule:  y_g = y_n + gamma*h/2 * (f(y_n) + f(y_g))
+        double a = GAMMA * h / 2;
+        double rV = v + a * c.dV_dt(v, i);
+        double rI = i + a * c.dI_dt(v, i, m_R);
+        if (!newton(c, a, rV, rI, v, i))
+            return false;
+        double gV = m_V;
+        double gI = m_I;
+
+        // (2) BDF2:  y_n+1 = W1*y_g - W0*y_n + D*h * f(y_n+1)
+        a = D * h;
+        rV = W1 * gV - W0 * v;
+        rI = W1 * gI - W0 * i;
+        if (!newton(c, a, rV, rI, gV, gI))
+            return false;
+
+        m_nSteps++;
+        return true;
+    }
+
+    /**
+     * Solve  y - a*f(y) = r  for y = (V, I) with Newton's method.
+     * Result is left in m_V, m_I.
+     *
+     * @param a = step size times the stage's weight on f(y)
+     * @param rV = right hand side, voltage part
+     * @param rI = right hand side, current part
+     * @param V = first guess for voltage
+     * @param I = first guess for current
+     * @return true if converged
+     */
+    private boolean newton(Circuit c, double a, double rV, double rI, double V, double I) {
+        final double invC = 1. / c.getCapacitance();
+        final double invL = 1. / c.getInductance();
+        final double R = m_R;
+
+        for (int iter=0; iter<MAX_ITERATIONS; iter++) {
+            m_nIterations++;
+
+            // residual
+            double gV = V - a * c.dV_dt(V, I) - rV;
+            double gI = I - a * c.dI_dt(V, I, R) - rI;
+
+            // Jacobian of the residual, and its inverse applied to the residual
+            double j11 = 1 - a * c.dVdot_dV(V);
+            double j12 = a * invC;
+            double j21 = -a * invL;
+            double j22 = 1 + a * R * invL;
+            double det = j11 * j22 - j12 * j21;
+            double dV = -( j22 * gV - j12 * gI) / det;
+            double dI = -(-j21 * gV + j11 * gI) / det;
+
+            if (Double.isNaN(dV) || Double.isNaN(dI) || Double.isInfinite(dV) || Double.isInfinite(dI))
+                return false;
+
+            // don't let the diode's forward voltage jump too far in one iteration
+            if (c.hasDiode() && -(V + dV) > DIODE_LIMIT_VOLTS && dV < -DIODE_MAX_STEP) {
+                dV = -DIODE_MAX_STEP;
+                V += dV;
+                I += dI;
+                continue;
+            }
+
+            V += dV;
+            I += dI;
+            if (Math.abs(dV) <= TOLERANCE * (1 + Math.abs(V))
+             && Math.abs(dI) <= TOLERANCE * (1 + Math.abs(I))) {
+                m_V = V;
+                m_I = I;
+                return true;
+            }
+        }
+        m_V = V;
+        m_I = I;
+        return false;
+    }
+} // end class ImplicitTRBDF2
@@ -0,0 +1,145 @@
+package rlc;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * InductanceProfile is the inductance of the coil as a function of where the
+ * projectile is, L(x). With the projectile far away the coil has its "air"
+ * inductance (what InductorSim9 works out); as the iron moves into the coil
+ * the inductance rises, peaks with the projectile in the middle, and falls
+ * again as it leaves. The force on the projectile is
+ *
+ *    F = 1/2 * I^2 * dL/dx
+ *
+ * L is kept as a table at evenly spaced positions, with dL/dx worked out
+ * once for every entry, so looking up either one in the middle of a
+ * simulation is a multiply, a cast and a linear interpolation. Beyond the
+ * ends of the table, L stays at its end value and dL/dx is zero.
+ *
+ * Positions are in meters, from the projectile's centre to the coil's
+ * centre: negative before the coil, positive after it.
+ * The table is immutable, so one profile can be shared by any number of
+ * simulations and threads.
+ */
+
+//----------------------------------------------------------------------
+//           InductanceProfile
+//----------------------------------------------------------------------
+public final class InductanceProfile
+{
+    private final double m_x0;          // meters, position of the first entry
+    private final double m_dx;          // meters between entries
+    private final double m_invDx;       // 1/m_dx
+    private final double[] m_L;         // henries
+    private final double[] m_dLdx;      // henries per meter
+    private final double m_peak;        // henries, largest entry
+
+    private InductanceProfile(double x0, double dx, double[] henries) {
+        m_x0 = x0;
+        m_dx = dx;
+        m_invDx = 1. / dx;
+        m_L = henries;
+        m_dLdx = new double[henries.length];
+
+        double peak = henries[0];
+        for (int ii=1; ii<henries.length; ii++) {
+            peak = Math.max(peak, henries[ii]);
+        }
+        m_peak = peak;
+
+        // central differences inside, one-sided at the ends
+        int n = henries.length;
+        for (int ii=0; ii<n; ii++) {
+            int lo = Math.max(ii - 1, 0);
+            int hi = Math.min(ii + 1, n - 1);
+            m_dLdx[ii] = (hi == lo) ? 0 : (henries[hi] - henries[lo]) / ((hi - lo) * dx);
+        }
+    }
+
+    /**
+     * @param x0 = position of the first sample (meters)
+     * @param dx = distance between samples (meters)
+     * @param henries = inductance at x0, x0+dx, x0+2dx ... (at least one)
+     * @return a profile from measured or calculated samples
+     */
+    public static InductanceProfile fromSamples(double x0, double dx, double[] henries) {
+        if (henries.length == 0 || !(dx > 0))
+            throw new IllegalArgumentException("need at least one sample and dx > 0");
+        return new InductanceProfile(x0, dx, henries.clone());
+    }
+
+    /**
+     * @param L = inductance (henries) as a function of position (meters)
+     * @param xMin, xMax = range of positions to tabulate (meters)
+     * @param n = number of samples, including both ends (at least 2)
+     * @return a profile sampled from the function
+     */
+    public static InductanceProfile fromFunction(DoubleUnaryOperator L, double xMin, double xMax, int n) {
+        if (n < 2 || !(xMax > xMin))
+            throw new IllegalArgumentException("need n >= 2 and xMax > xMin");
+        double dx = (xMax - xMin) / (n - 1);
+        double[] henries = new double[n];
+        for (int ii=0; ii<n; ii++) {
+            henries[ii] = L.applyAsDouble(xMin + ii * dx);
+        }
+        return new InductanceProfile(xMin, dx, henries);
+    }
+
+    /**
+     * A simple bell-shaped profile, good enough when nothing has been measured:
+     *
+     *                            Lpeak - Lair
+     *    L(x) = Lair + -----------------------------
+     *                   1 + (x / (coilLength/2))^2
+     *
+     * @param Lair = inductance with no projectile, e.g. from InductorSim9 (henries)
+     * @param Lpeak = inductance with the projectile in the middle (henries)
+     * @param coilLength = length of the coil (meters)
+     * @return a profile covering four coil lengths either side of the middle
+     */
+    public static InductanceProfile bell(final double Lair, final double Lpeak, double coilLength) {
+        final double halfWidth = coilLength / 2;
+        return fromFunction(x -> Lair + (Lpeak - Lair) / (1 + (x / halfWidth) * (x / halfWidth)),
+                            -4 * coilLength, 4 * coilLength, 801);
+    }
+
+    /**
+     * @param x = projectile position (meters)
+     * @return inductance of the coil (henries)
+     */
+    public double inductance(double x) {
+        return interpolate(m_L, x, m_L[0], m_L[m_L.length-1]);
+    }
+
+    /**
+     * @param x = projectile position (meters)
+     * @return dL/dx (henries per meter)
+     */
+    public double gradient(double x) {
+        return interpolate(m_dLdx, x, 0, 0);
+    }
+
+    /**
+     * @return the largest inductance anywhere in the table (henries)
+     */
+    public double getPeak()             { return m_peak; }
+
+    public double getStart()            { return m_x0; }
+    public double getEnd()              { return m_x0 + (m_L.length - 1) * m_dx; }
+    public double getSpacing()          { return m_dx; }
+    public int size()                   { return m_L.length; }
+
+    /**
+     * linear interpolation in a table, with fixed values off either end
+     */
+    private double interpolate(double[] table, double x, double before, double after) {
+        double u = (x - m_x0) * m_invDx;
+        if (!(u >= 0))
+            return before;
+        int k = (int)u;
+        if (k >= table.length - 1)
+            return (u > table.length - 1) ? after : table[table.length-1];
+        double f = u - k;
+        return table[k] + f * (table[k+1] - table[k]);
+    }
+} // end class InductanceProfile
@@ -0,0 +1,71 @@
+package rlc;
+
+/**
+ * LaunchResult is what happened to the projectile in one firing of a
+ * MultiStageLauncher: when each stage fired, how fast the projectile was
+ * going when it left each stage, and how fast it left the barrel.
+ *
+ * If the projectile stops (or goes backwards) before reaching a stage's
+ * trigger, that stage and the ones after it never fire; getStagesFired()
+ * says how many did. A result is immutable, so it can be handed between
+ * threads freely.
+ */
+
+//----------------------------------------------------------------------
+//           LaunchResult
+//----------------------------------------------------------------------
+public final class LaunchResult
+{
+    private final double[] m_triggerTime;   // seconds, when each stage fired
+    private final double[] m_exitVelocity;  // m/s, when each stage handed over
+    private final int m_nFired;
+    private final double m_velocity0;       // m/s, at the start
+    private final double m_velocity;        // m/s, at the end
+    private final double m_position;        // meters along the barrel, at the end
+    private final double m_time;            // seconds, at the end
+    private final double m_mass;            // kg
+    private final double m_energyUsed;      // joules, in the banks that fired
+
+    LaunchResult(double[] triggerTime, double[] exitVelocity, int nFired, double velocity0,
+                 double velocity, double position, double time, double mass, double energyUsed) {
+        m_triggerTime = triggerTime;
+        m_exitVelocity = exitVelocity;
+        m_nFired = nFired;
+        m_velocity0 = velocity0;
+        m_velocity = velocity;
+        m_position = position;
+        m_time = time;
+        m_mass = mass;
+        m_energyUsed = energyUsed;
+    }
+
+    public int getStagesFired()                 { return m_nFired; }
+    public double getTriggerTime(int stage)     { return m_triggerTime[stage]; }
+    public double getExitVelocity(int stage)    { return m_exitVelocity[stage]; }
+    public double getMuzzleVelocity()           { return m_velocity; }
+    public double getFinalPosition()            { return m_position; }
+    public double getFinalTime()                { return m_time; }
+
+    /**
+     * Kinetic energy counts with the sign of the velocity, 1/2 m v|v|, so a
+     * projectile that ends up going backwards (pulled back by a stage that
+     * fired too late) has lost energy, not gained it. Plain 1/2 m v^2 would
+     * count a shot out of the wrong end as a success.
+     *
+     * @return kinetic energy gained by the projectile toward the muzzle
+     * (joules); negative if it ends up slower than it started, or going
+     * backwards
+     */
+    public double getEnergyGained() {
+        return 0.5 * m_mass * (m_velocity * Math.abs(m_velocity) - m_velocity0 * Math.abs(m_velocity0));
+    }
+
+    /**
+     * @return energy gained by the projectile, as a fraction of the energy
+     * stored in the capacitor banks that fired; negative for a failed shot
+     * (see getEnergyGained)
+     */
+    public double getEfficiency() {
+        return (m_energyUsed > 0) ? getEnergyGained() / m_energyUsed : 0;
+    }
+} // end class LaunchResult
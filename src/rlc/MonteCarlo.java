@@ -0,0 +1,237 @@
+package rlc;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * MonteCarlo shows how much a design's performance spreads when the parts
+ * aren't exactly what it says on the label. Real capacitors are +/-20%, and
+ * wire is never exactly its nominal size, which moves the coil's resistance
+ * and inductance. Each run picks every component at random within its
+ * tolerance, fires the discharge, and counts the peak current, pulse width
+ * and zero-crossing time into a Histogram; nothing else is kept, so
+ * millions of runs need no more memory than one.
+ *
+ * The runs are split among all the processors with fork/join. Every task
+ * gets its own random number stream, split off its parent's before any
+ * work is handed out, and the work is always split the same way no matter
+ * how many threads there are. So the same seed always gives exactly the
+ * same histograms.
+ *
+ * Typical usage:
+ *    MonteCarlo mc = new MonteCarlo(new Circuit(0.1, 0.0005, 0.0047, true), 400);
+ *    mc.setTolerance(MonteCarlo.CAPACITANCE, 0.20, MonteCarlo.UNIFORM);
+ *    mc.setTolerance(MonteCarlo.RESISTANCE, 0.05, MonteCarlo.NORMAL);
+ *    Histogram[] h = mc.run(1000000, 12345L);
+ *    double p95 = h[MonteCarlo.PEAK_CURRENT].percentile(95);
+ */
+
+//----------------------------------------------------------------------
+//           MonteCarlo
+//----------------------------------------------------------------------
+public final class MonteCarlo
+{
+    // components that can have a tolerance
+    public static final int VOLTAGE = 0;
+    public static final int RESISTANCE = 1;
+    public static final int CAPACITANCE = 2;
+    public static final int INDUCTANCE = 3;
+    public static final int NumberOfComponents = 4;
+
+    // how a component is spread across its tolerance
+    public static final int UNIFORM = 0;        // anywhere within +/- tolerance, equally likely
+    public static final int NORMAL = 1;         // bell curve, tolerance = 3 standard deviations, clipped there
+
+    // results, the index into the histograms returned by run()
+    public static final int PEAK_CURRENT = 0;   // amps
+    public static final int PULSE_WIDTH = 1;    // seconds
+    public static final int ZERO_CROSSING = 2;  // seconds; runs where the current never reverses aren't counted
+    public static final int NumberOfResults = 3;
+
+    // how many runs one task does before it stops splitting the work;
+    // this also fixes the shape of the work, so it must not depend on the machine
+    private static final int RUNS_PER_TASK = 1024;
+
+    private static final int DEFAULT_BINS = 200;
+
+    // the nominal design
+    private final Circuit m_circuit;
+    private final double m_voltage;             // volts
+
+    private final double[] m_tolerance = new double[NumberOfComponents];   // fraction
+    private final int[] m_distribution = new int[NumberOfComponents];
+
+    private int m_nSteps = CoilSim20.NUM_STEPS;
+    private int m_nBins = DEFAULT_BINS;
+
+    /**
+     * @param nominal = the component values on the labels
+     * @param voltage = initial capacitor charge (volts)
+     */
+    public MonteCarlo(Circuit nominal, double voltage) {
+        m_circuit = nominal;
+        m_voltage = voltage;
+    }
+
+    /**
+     * @param component = VOLTAGE, RESISTANCE, CAPACITANCE or INDUCTANCE
+     * @param fraction = tolerance either side of nominal, e.g. 0.2 for +/-20%
+     * @param distribution = UNIFORM or NORMAL
+     */
+    public void setTolerance(int component, double fraction, int distribution) {
+        m_tolerance[component] = fraction;
+        m_distribution[component] = distribution;
+    }
+
+    /**
+     * @param nSteps = total number of divisions in each simulation (default 500, at least 2)
+     */
+    public void setSteps(int nSteps) {
+        if (nSteps < 2)
+            throw new IllegalArgumentException("need at least 2 steps");
+        m_nSteps = nSteps;
+    }
+
+    /**
+     * @param nBins = number of bins in each histogram (default 200)
+     */
+    public void setBins(int nBins) {
+        m_nBins = nBins;
+    }
+
+    /**
+     * Run the simulations, using all processors.
+     * @see #run(long, long, ForkJoinPool)
+     */
+    public Histogram[] run(long nRuns, long seed) {
+        return run(nRuns, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Run the simulations, using the given pool of threads.
+     * @param nRuns = how many random designs to try
+     * @param seed = starting point of the random numbers; the same seed gives the same answer
+     * @return histograms, indexed by PEAK_CURRENT, PULSE_WIDTH and ZERO_CROSSING
+     */
+    public Histogram[] run(long nRuns, long seed, ForkJoinPool pool) {
+        return pool.invoke(new MonteCarloTask(emptyHistograms(), new SplittableRandom(seed), 0, nRuns));
+    }
+
+    /**
+     * The histograms cover everything from zero to twice the nominal design's
+     * peak current and pulse width, and to twice its simulated time for the
+     * zero crossing; anything outside is still counted, and in the percentiles.
+     */
+    private Histogram[] emptyHistograms() {
+        SimContext context = new SimContext(m_nSteps);
+        double dt = timeStep(m_circuit);
+        context.run(new AnalyticSolver(), m_circuit, m_voltage, 0, dt);
+        RunSummary nominal = RunSummary.summarize(context);
+
+        Histogram[] h = new Histogram[NumberOfResults];
+        h[PEAK_CURRENT] = new Histogram(0, 2 * Math.max(nominal.getPeakCurrent(), 1E-9), m_nBins);
+        h[PULSE_WIDTH] = new Histogram(0, 2 * Math.max(nominal.getPulseWidth(), dt), m_nBins);
+        h[ZERO_CROSSING] = new Histogram(0, 2 * m_nSteps * dt, m_nBins);
+        return h;
+    }
+
+    private double timeStep(Circuit c) {
+        return Circuit.getTotalSimulationTime((float)c.getInductance(), (float)c.getCapacitance()) / m_nSteps;
+    }
+
+    /**
+     * @return nominal value * (1 + random error within the tolerance)
+     */
+    private double sample(SplittableRandom random, int component, double nominal) {
+        double tolerance = m_tolerance[component];
+        if (tolerance == 0)
+            return nominal;
+        double error;
+        if (m_distribution[component] == NORMAL) {
+            error = nextGaussian(random) / 3.;
+            error = Math.max(-1., Math.min(1., error));
+        }
+        else
+            error = 2 * random.nextDouble() - 1;
+        return nominal * (1 + tolerance * error);
+    }
+
+    /**
+     * standard normal random number (Marsaglia polar method);
+     * SplittableRandom doesn't have one of its own before Java 17
+     */
+    private static double nextGaussian(SplittableRandom random) {
+        double u, v, s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            s = u*u + v*v;
+        } while (s >= 1 || s == 0);
+        return u * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    //----------------------------------------------------------------------
+    //           MonteCarloTask
+    //----------------------------------------------------------------------
+    /**
+     * helper class does a range of the runs, splitting it in half until the
+     * pieces are small enough to run on one thread, and merges the halves'
+     * histograms left then right
+     */
+    private final class MonteCarloTask extends RecursiveTask<Histogram[]> {
+        private final Histogram[] m_empty;      // bins to copy
+        private final SplittableRandom m_random;
+        private final long m_first;
+        private final long m_last;              // exclusive
+
+        MonteCarloTask(Histogram[] empty, SplittableRandom random, long first, long last) {
+            m_empty = empty;
+            m_random = random;
+            m_first = first;
+            m_last = last;
+        }
+
+        protected Histogram[] compute() {
+            if (m_last - m_first > RUNS_PER_TASK) {
+                long middle = (m_first + m_last) >>> 1;
+                // split both streams off here, before any thread can get at them
+                MonteCarloTask left = new MonteCarloTask(m_empty, m_random.split(), m_first, middle);
+                MonteCarloTask right = new MonteCarloTask(m_empty, m_random.split(), middle, m_last);
+                left.fork();
+                Histogram[] rightResult = right.compute();
+                Histogram[] result = left.join();
+                for (int r=0; r<NumberOfResults; r++) {
+                    result[r].merge(rightResult[r]);
+                }
+                return result;
+            }
+
+            Histogram[] result = new Histogram[NumberOfResults];
+            for (int r=0; r<NumberOfResults; r++) {
+                result[r] = m_empty[r].emptyCopy();
+            }
+
+            // context and solver belong to this task alone, re-used for every run
+            SimContext context = new SimContext(m_nSteps);
+            AnalyticSolver solver = new AnalyticSolver();   // falls back to implicit for the diode
+            SplittableRandom random = m_random;
+
+            for (long ii=m_first; ii<m_last; ii++) {
+                double volts = sample(random, VOLTAGE, m_voltage);
+                double R = sample(random, RESISTANCE, m_circuit.getResistance());
+                double C = sample(random, CAPACITANCE, m_circuit.getCapacitance());
+                double L = sample(random, INDUCTANCE, m_circuit.getInductance());
+                Circuit circuit = new Circuit(R, L, C, m_circuit.hasDiode());
+                double dt = timeStep(circuit);
+
+                context.run(solver, circuit, volts, 0, dt);
+                RunSummary summary = RunSummary.summarize(context);
+                result[PEAK_CURRENT].add(summary.getPeakCurrent());
+                result[PULSE_WIDTH].add(summary.getPulseWidth());
+                result[ZERO_CROSSING].add(summary.getZeroCrossing());      // NaN is skipped
+            }
+            return result;
+        }
+    }
+} // end class MonteCarlo
@@ -0,0 +1,292 @@
+package rlc;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * MultiStageLauncher fires a projectile down a barrel of several Stages,
+ * each with its own capacitor bank and coil:
+ * - the projectile coasts until it reaches the next stage's trigger position,
+ * - that stage's bank fires into its coil (ProjectileKernel), and
+ * - the projectile's position and velocity are handed on to the next stage
+ *   once it reaches that stage's trigger, or the discharge is over.
+ *
+ * Only one stage pushes at a time: whatever current is left in a coil when
+ * the next stage fires is ignored, as if its switch opened. Coasting is
+ * at constant speed, with no friction or drag.
+ *
+ * Tuning: tune() chooses each stage's trigger position in turn, from a list
+ * of candidates, keeping the one that gives the highest muzzle velocity.
+ * Where a stage fires also decides where the stage in front of it stops
+ * pushing, so each candidate is tried from the stage in front onwards. The
+ * flight up to there is simulated just once, and the candidates are tried
+ * from that point on all processors with fork/join.
+ *
+ * Typical usage:
+ *    MultiStageLauncher gun = new MultiStageLauncher(stages, 0.010);  // 10 g projectile
+ *    gun = gun.tune(0, 0, candidates);       // candidates[k] = trigger positions to try for stage k
+ *    LaunchResult shot = gun.fire(0, 0);     // from the breech, at rest (so stage 0 triggers at 0)
+ *    double muzzle = shot.getMuzzleVelocity();
+ */
+
+//----------------------------------------------------------------------
+//           MultiStageLauncher
+//----------------------------------------------------------------------
+public final class MultiStageLauncher
+{
+    // how many candidates one task tries before it stops splitting the work
+    private static final int TRIALS_PER_TASK = 2;
+
+    private final Stage[] m_stages;     // in order along the barrel
+    private final double m_mass;        // kg
+
+    // total number of divisions in each stage's discharge
+    private int m_nSteps = CoilSim20.NUM_STEPS;
+
+    /**
+     * @param stages = the stages, in the order the projectile reaches them
+     * @param mass = projectile mass (kg)
+     */
+    public MultiStageLauncher(Stage[] stages, double mass) {
+        m_stages = stages.clone();
+        m_mass = mass;
+    }
+
+    /**
+     * @param nSteps = total number of divisions in each stage's discharge (default 500, at least 2)
+     */
+    public void setSteps(int nSteps) {
+        if (nSteps < 2)
+            throw new IllegalArgumentException("need at least 2 steps");
+        m_nSteps = nSteps;
+    }
+
+    public int size()                   { return m_stages.length; }
+    public Stage getStage(int index)    { return m_stages[index]; }
+    public double getMass()             { return m_mass; }
+
+    /**
+     * @return a copy of this launcher with one stage replaced
+     */
+    public MultiStageLauncher withStage(int index, Stage stage) {
+        Stage[] stages = m_stages.clone();
+        stages[index] = stage;
+        MultiStageLauncher result = new MultiStageLauncher(stages, m_mass);
+        result.m_nSteps = m_nSteps;
+        return result;
+    }
+
+    /**
+     * Fire the launcher. It's safe to call from any number of threads at once.
+     * @param x0 = starting position of the projectile (meters along the barrel)
+     * @param v0 = starting velocity of the projectile (m/s)
+     * @return what happened
+     */
+    public LaunchResult fire(double x0, double v0) {
+        Flight flight = new Flight(x0, v0);
+        flight.fly(m_stages, 0);
+        return flight.result();
+    }
+
+    /**
+     * Tune the trigger positions, using all processors.
+     * @see #tune(double, double, double[][], ForkJoinPool)
+     */
+    public MultiStageLauncher tune(double x0, double v0, double[][] candidates) {
+        return tune(x0, v0, candidates, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Tune the trigger positions one stage at a time, first to last. For each
+     * stage, try every candidate with the stages already tuned in front of it
+     * and the untuned ones behind it, and keep the one with the highest
+     * muzzle velocity (the first one, if there's a tie). Include the current
+     * trigger positions among the candidates if the launcher should never
+     * come out slower than it went in.
+     *
+     * @param x0, v0 = starting position (meters) and velocity (m/s) of the projectile
+     * @param candidates = candidates[k] is the trigger positions to try for stage k,
+     *                     or null to leave that stage alone
+     * @param pool = threads to try the candidates on
+     * @return a tuned copy of this launcher
+     */
+    public MultiStageLauncher tune(double x0, double v0, double[][] candidates, ForkJoinPool pool) {
+        MultiStageLauncher best = this;
+        Flight flight = new Flight(x0, v0);         // just before stage nFrom fires
+        int nFrom = 0;
+        for (int k=0; k<m_stages.length; k++) {
+            double[] triggers = (k < candidates.length) ? candidates[k] : null;
+            if (triggers != null && triggers.length > 0) {
+                double[] speeds = new double[triggers.length];
+                pool.invoke(new TuneTask(best.m_stages, k, triggers, flight, nFrom, speeds, 0, triggers.length));
+
+                int iBest = 0;
+                for (int ii=1; ii<speeds.length; ii++) {
+                    if (speeds[ii] > speeds[iBest])
+                        iBest = ii;
+                }
+                best = best.withStage(k, best.m_stages[k].withTrigger(triggers[iBest]));
+            }
+
+            // now we know where stage k-1 hands over, so it won't change again
+            if (k > 0) {
+                if (!flight.fireStage(best.m_stages, k - 1))
+                    break;                          // the rest can't make any difference
+                nFrom = k;
+            }
+        }
+        return best;
+    }
+
+    //----------------------------------------------------------------------
+    //           Flight
+    //----------------------------------------------------------------------
+    /**
+     * helper class follows the projectile down the barrel; it owns the
+     * buffers for the discharges, so use one per thread
+     */
+    private final class Flight {
+        // buffers for one stage's discharge, re-used by every stage
+        private final double[] m_volts = new double[m_nSteps];
+        private final double[] m_amps = new double[m_nSteps];
+        private final double[] m_position = new double[m_nSteps];
+        private final double[] m_velocity = new double[m_nSteps];
+
+        // where the projectile is now
+        private final double m_velocity0;
+        private double m_x;                 // meters along the barrel
+        private double m_v;                 // m/s
+        private double m_t;                 // seconds
+
+        // what happened so far
+        private final double[] m_triggerTime = new double[m_stages.length];
+        private final double[] m_exitVelocity = new double[m_stages.length];
+        private int m_nFired;
+        private double m_energyUsed;
+
+        Flight(double x0, double v0) {
+            m_velocity0 = v0;
+            m_x = x0;
+            m_v = v0;
+            Arrays.fill(m_triggerTime, Double.NaN);
+            Arrays.fill(m_exitVelocity, Double.NaN);
+        }
+
+        /**
+         * copy another flight, to carry on from where it got to
+         */
+        Flight(Flight other) {
+            this(other.m_x, other.m_velocity0);
+            m_v = other.m_v;
+            m_t = other.m_t;
+            System.arraycopy(other.m_triggerTime, 0, m_triggerTime, 0, m_triggerTime.length);
+            System.arraycopy(other.m_exitVelocity, 0, m_exitVelocity, 0, m_exitVelocity.length);
+            m_nFired = other.m_nFired;
+            m_energyUsed = other.m_energyUsed;
+        }
+
+        /**
+         * fire stages[first] onwards, until the end of the barrel or the projectile stalls
+         */
+        void fly(Stage[] stages, int first) {
+            for (int k=first; k<stages.length; k++) {
+                if (!fireStage(stages, k))
+                    break;
+            }
+        }
+
+        /**
+         * coast to stage k's trigger, and fire it
+         * @return false if the projectile never reaches the trigger
+         */
+        boolean fireStage(Stage[] stages, int k) {
+            Stage s = stages[k];
+            if (m_x < s.getTrigger()) {
+                if (m_v <= 0)
+                    return false;
+                m_t += (s.getTrigger() - m_x) / m_v;
+                m_x = s.getTrigger();
+            }
+            m_triggerTime[k] = m_t;
+            m_nFired++;
+            m_energyUsed += s.getEnergy();
+
+            // the next stage takes over once the projectile reaches its trigger
+            double next = (k + 1 < stages.length) ? stages[k+1].getTrigger() : Double.POSITIVE_INFINITY;
+            double coil = s.getCoilPosition();
+            double dt = s.getDuration() / m_nSteps;
+
+            ProjectileKernel kernel = new ProjectileKernel(s.getCircuit(), s.getProfile(), m_mass);
+            m_volts[0] = s.getVoltage();
+            m_amps[0] = 0;
+            m_position[0] = m_x - coil;
+            m_velocity[0] = m_v;
+            int ii = 0;
+            while (ii < m_nSteps - 1) {
+                kernel.step(m_volts, m_amps, m_position, m_velocity, ii, dt);
+                ii++;
+                if (m_position[ii] + coil >= next)
+                    break;
+            }
+
+            m_x = m_position[ii] + coil;
+            m_v = m_velocity[ii];
+            m_t += ii * dt;
+            m_exitVelocity[k] = m_v;
+            return true;
+        }
+
+        LaunchResult result() {
+            return new LaunchResult(m_triggerTime.clone(), m_exitVelocity.clone(), m_nFired,
+                                    m_velocity0, m_v, m_x, m_t, m_mass, m_energyUsed);
+        }
+    }
+
+    //----------------------------------------------------------------------
+    //           TuneTask
+    //----------------------------------------------------------------------
+    /**
+     * helper class tries a range of trigger positions for one stage,
+     * splitting it in half until the pieces are small enough for one thread
+     */
+    private final class TuneTask extends RecursiveAction {
+        private final Stage[] m_base;       // stages as tuned so far
+        private final int m_nStage;         // the one being tuned
+        private final double[] m_triggers;
+        private final Flight m_start;       // projectile state just before stage m_nFrom
+        private final int m_nFrom;
+        private final double[] m_speeds;    // muzzle velocity for each trigger
+        private final int m_first;
+        private final int m_last;           // exclusive
+
+        TuneTask(Stage[] base, int nStage, double[] triggers, Flight start, int nFrom, double[] speeds,
+                 int first, int last) {
+            m_base = base;
+            m_nStage = nStage;
+            m_triggers = triggers;
+            m_start = start;
+            m_nFrom = nFrom;
+            m_speeds = speeds;
+            m_first = first;
+            m_last = last;
+        }
+
+        protected void compute() {
+            if (m_last - m_first > TRIALS_PER_TASK) {
+                int middle = (m_first + m_last) >>> 1;
+                invokeAll(new TuneTask(m_base, m_nStage, m_triggers, m_start, m_nFrom, m_speeds, m_first, middle),
+                          new TuneTask(m_base, m_nStage, m_triggers, m_start, m_nFrom, m_speeds, middle, m_last));
+                return;
+            }
+
+            Stage[] stages = m_base.clone();
+            for (int ii=m_first; ii<m_last; ii++) {
+                stages[m_nStage] = m_base[m_nStage].withTrigger(m_triggers[ii]);
+                Flight flight = new Flight(m_start);
+                flight.fly(stages, m_nFrom);
+                m_speeds[ii] = flight.m_v;
+            }
+        }
+    }
+} // end class MultiStageLauncher
@@ -0,0 +1,168 @@
+package rlc;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParameterSweep runs the RLC simulation for every combination of a grid of
+ * voltages, resistances, capacitances, inductances and diode settings, and
+ * returns a RunSummary for each one. No user interface is needed.
+ *
+ * Circuits without the diode use the exact solution (AnalyticResponse),
+ * which costs next to nothing; the rest use the implicit solver.
+ *
+ * The combinations are split among all the processors with fork/join. Each
+ * task owns its SimContext and solvers, and nothing is shared between runs, so
+ * the work scales with the number of cores.
+ *
+ * Typical usage:
+ *    ParameterSweep sweep = new ParameterSweep(
+ *        ParameterSweep.range(50, 400, 8),           // volts
+ *        ParameterSweep.range(0.02, 0.2, 10),        // ohms
+ *        ParameterSweep.range(0.001, 0.02, 20),      // farads
+ *        ParameterSweep.range(0.0002, 0.004, 20),    // henries
+ *        new boolean[] { false, true });             // diode
+ *    RunSummary[] results = sweep.run();
+ */
+
+//----------------------------------------------------------------------
+//           ParameterSweep
+//----------------------------------------------------------------------
+public final class ParameterSweep
+{
+    // how many runs one task does before it stops splitting the work
+    private static final int RUNS_PER_TASK = 64;
+
+    // the grid
+    private final double[] m_voltages;      // volts
+    private final double[] m_resistances;   // ohms
+    private final double[] m_capacitances;  // farads
+    private final double[] m_inductances;   // henries
+    private final boolean[] m_diodes;
+
+    // total number of divisions in each simulation
+    private int m_nSteps = CoilSim20.NUM_STEPS;
+
+    public ParameterSweep(double[] voltages, double[] resistances,
+                          double[] capacitances, double[] inductances,
+                          boolean[] diodes) {
+        m_voltages = voltages.clone();
+        m_resistances = resistances.clone();
+        m_capacitances = capacitances.clone();
+        m_inductances = inductances.clone();
+        m_diodes = diodes.clone();
+    }
+
+    /**
+     * Helper function to build evenly spaced grid values, including both ends.
+     * @param min = first value
+     * @param max = last value
+     * @param n = number of values
+     * @return array of n values from min to max
+     */
+    public static double[] range(double min, double max, int n) {
+        double[] values = new double[n];
+        for (int ii=0; ii<n; ii++) {
+            values[ii] = (n == 1) ? min : min + (max - min) * ii / (n - 1);
+        }
+        return values;
+    }
+
+    /**
+     * @param nSteps = total number of divisions in each simulation (default 500, at least 2)
+     */
+    public void setSteps(int nSteps) {
+        if (nSteps < 2)
+            throw new IllegalArgumentException("need at least 2 steps");
+        m_nSteps = nSteps;
+    }
+
+    /**
+     * @return total number of runs in the sweep
+     */
+    public int size() {
+        return m_voltages.length * m_resistances.length * m_capacitances.length
+             * m_inductances.length * m_diodes.length;
+    }
+
+    /**
+     * Run every combination, using all processors.
+     * @return a summary for every run, in the order described by circuitAt()
+     */
+    public RunSummary[] run() {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Run every combination, using the given pool of threads.
+     * @return a summary for every run, in the order described by circuitAt()
+     */
+    public RunSummary[] run(ForkJoinPool pool) {
+        RunSummary[] results = new RunSummary[size()];
+        pool.invoke(new SweepTask(results, 0, results.length));
+        return results;
+    }
+
+    /**
+     * Run number 'index' has the diode setting varying fastest, then
+     * inductance, capacitance, resistance, and voltage slowest.
+     * @return initial capacitor voltage for this run
+     */
+    public double voltageAt(int index) {
+        return m_voltages[index / (m_diodes.length * m_inductances.length
+                                   * m_capacitances.length * m_resistances.length)];
+    }
+
+    /**
+     * @return component values for run number 'index'
+     */
+    public Circuit circuitAt(int index) {
+        int d = index % m_diodes.length;        index /= m_diodes.length;
+        int l = index % m_inductances.length;   index /= m_inductances.length;
+        int c = index % m_capacitances.length;  index /= m_capacitances.length;
+        int r = index % m_resistances.length;
+        return new Circuit(m_resistances[r], m_inductances[l], m_capacitances[c], m_diodes[d]);
+    }
+
+    //----------------------------------------------------------------------
+    //           SweepTask
+    //----------------------------------------------------------------------
+    /**
+     * helper class runs a range of the combinations, splitting it in half
+     * until the pieces are small enough to run on one thread
+     */
+    private class SweepTask extends RecursiveAction {
+        private final RunSummary[] m_results;
+        private final int m_first;
+        private final int m_last;      // exclusive
+
+        SweepTask(RunSummary[] results, int first, int last) {
+            m_results = results;
+            m_first = first;
+            m_last = last;
+        }
+
+        protected void compute() {
+            if (m_last - m_first > RUNS_PER_TASK) {
+                int middle = (m_first + m_last) >>> 1;
+                invokeAll(new SweepTask(m_results, m_first, middle),
+                          new SweepTask(m_results, middle, m_last));
+                return;
+            }
+
+            // context and solvers belong to this task alone, re-used for every run
+            SimContext context = new SimContext(m_nSteps);
+            AnalyticSolver solver = new AnalyticSolver();   // falls back to implicit for the diode
+
+            for (int ii=m_first; ii<m_last; ii++) {
+                Circuit circuit = circuitAt(ii);
+                float elapsed = Circuit.getTotalSimulationTime((float)circuit.getInductance(),
+                                                               (float)circuit.getCapacitance());
+                double dt = elapsed / m_nSteps;
+
+                context.run(solver, circuit, voltageAt(ii), 0, dt);
+                m_results[ii] = RunSummary.summarize(context);
+            }
+        }
+    }
+} // end class ParameterSweep
@@ -0,0 +1,159 @@
+package rlc;
+
+/**
+ * ProjectileKernel fires a projectile through the coil. It is RK4Kernel with
+ * two more state variables, so it can predict the muzzle velocity:
+ *
+ *   volts[ii]    = voltage on the capacitor after ii steps
+ *   amps[ii]     = current in the coil after ii steps
+ *   position[ii] = projectile position after ii steps (meters, see InductanceProfile)
+ *   velocity[ii] = projectile velocity after ii steps (meters/second)
+ *
+ * The coil's inductance comes from an InductanceProfile instead of the
+ * Circuit, and changes as the projectile moves:
+ *
+ *   dV/dt = -I / C                          (0 while the diode conducts)
+ *   dI/dt = (V - I*R - I*v*dL/dx) / L(x)    since V - I*R = d(L*I)/dt
+ *   dx/dt = v
+ *   dv/dt = I^2 * dL/dx / (2*m)
+ *
+ * The I*v*dL/dx term is the back-EMF, which is where the energy given to the
+ * projectile comes from.
+ *
+ * The diode is taken to be ideal: once the capacitor is empty, the coil
+ * current carries on through the diode and the voltage stays at zero. The
+ * exponential diode in Circuit needs very small steps with an explicit
+ * method, and a volt or so makes no difference to the projectile.
+ *
+ * Like RK4Kernel, the intermediate slopes live in
+ * local variables and the caller owns the buffers, so a run allocates
+ * nothing. A kernel is immutable and can be shared between threads.
+ */
+
+//----------------------------------------------------------------------
+//           ProjectileKernel
+//----------------------------------------------------------------------
+public final class ProjectileKernel
+{
+    private final Circuit m_circuit;            // R, C and diode; L is ignored
+    private final InductanceProfile m_profile;  // L(x) and dL/dx
+    private final double m_halfInvMass;         // 1/(2m), 1/kg
+    private final double m_C;                   // farads
+    private final boolean m_diode;
+
+    /**
+     * @param c = component values of the circuit; its inductance is not used
+     * @param profile = inductance as a function of projectile position
+     * @param mass = projectile mass (kg)
+     */
+    public ProjectileKernel(Circuit c, InductanceProfile profile, double mass) {
+        m_circuit = c;
+        m_profile = profile;
+        m_halfInvMass = 0.5 / mass;
+        m_C = c.getCapacitance();
+        m_diode = c.hasDiode();
+    }
+
+    public Circuit getCircuit()                 { return m_circuit; }
+    public InductanceProfile getProfile()       { return m_profile; }
+
+    /**
+     * Compute state [ii+1] from state [ii] using one Runge-Kutta step.
+     *
+     * @param volts = capacitor voltage buffer
+     * @param amps = coil current buffer
+     * @param position = projectile position buffer
+     * @param velocity = projectile velocity buffer
+     * @param ii = index of the starting state
+     * @param dt = incremental unit of time (seconds)
+     */
+    public void step(double[] volts, double[] amps, double[] position, double[] velocity, int ii, double dt) {
+        InductanceProfile p = m_profile;
+        double R = m_circuit.getResistance();
+        double V = volts[ii];
+        double I = amps[ii];
+        double X = position[ii];
+        double U = velocity[ii];
+
+        // m0 is derivative at the current time
+        double g = p.gradient(X);
+        double m0V = dV_dt(V, I);
+        double m0I = (V - I*R - I*U*g) / p.inductance(X);
+        double m0X = U;
+        double m0U = I*I * g * m_halfInvMass;
+
+        // m1 is our first estimate of derivative after one-half a time increment
+        double sV = V + m0V * dt / 2;
+        double sI = I + m0I * dt / 2;
+        double sX = X + m0X * dt / 2;
+        double sU = U + m0U * dt / 2;
+        g = p.gradient(sX);
+        double m1V = dV_dt(sV, sI);
+        double m1I = (sV - sI*R - sI*sU*g) / p.inductance(sX);
+        double m1X = sU;
+        double m1U = sI*sI * g * m_halfInvMass;
+
+        // m2 is our second estimate of derivative after one-half a time increment
+        sV = V + m1V * dt / 2;
+        sI = I + m1I * dt / 2;
+        sX = X + m1X * dt / 2;
+        sU = U + m1U * dt / 2;
+        g = p.gradient(sX);
+        double m2V = dV_dt(sV, sI);
+        double m2I = (sV - sI*R - sI*sU*g) / p.inductance(sX);
+        double m2X = sU;
+        double m2U = sI*sI * g * m_halfInvMass;
+
+        // m3 is derivative after one complete time increment
+        sV = V + m2V * dt;
+        sI = I + m2I * dt;
+        sX = X + m2X * dt;
+        sU = U + m2U * dt;
+        g = p.gradient(sX);
+        double m3V = dV_dt(sV, sI);
+        double m3I = (sV - sI*R - sI*sU*g) / p.inductance(sX);
+        double m3X = sU;
+        double m3U = sI*sI * g * m_halfInvMass;
+
+        // combine m0 - m3 according to the Runge-Kutta rules
+        volts[ii+1]    = V + (m0V + 2*m1V + 2*m2V + m3V) / 6 * dt;
+        amps[ii+1]     = I + (m0I + 2*m1I + 2*m2I + m3I) / 6 * dt;
+        position[ii+1] = X + (m0X + 2*m1X + 2*m2X + m3X) / 6 * dt;
+        velocity[ii+1] = U + (m0U + 2*m1U + 2*m2U + m3U) / 6 * dt;
+        if (m_diode && volts[ii+1] < 0)
+            volts[ii+1] = 0;
+    }
+
+    /**
+     * derivative of the capacitor voltage, with an ideal diode
+     */
+    private double dV_dt(double volts, double amps) {
+        if (m_diode && volts <= 0 && amps > 0)
+            return 0;                       // the diode carries the current
+        return (0 - amps) / m_C;
+    }
+
+    /**
+     * Run the simulation from the initial state in entry [0] of every buffer,
+     * filling in states [1] ... [nSteps-1].
+     *
+     * @param volts = capacitor voltage buffer, at least nSteps long
+     * @param amps = coil current buffer, at least nSteps long
+     * @param position = projectile position buffer, at least nSteps long
+     * @param velocity = projectile velocity buffer, at least nSteps long
+     * @param nSteps = total number of states, including the initial state
+     * @param dt = time between each clock tick (seconds)
+     */
+    public void run(double[] volts, double[] amps, double[] position, double[] velocity, int nSteps, double dt) {
+        for (int ii=1; ii<nSteps; ii++) {
+            step(volts, amps, position, velocity, ii-1, dt);
+        }
+    }
+
+    /**
+     * @return kinetic energy of the projectile at the given speed (joules)
+     */
+    public double kineticEnergy(double velocity) {
+        return velocity * velocity / (4 * m_halfInvMass);
+    }
+} // end class ProjectileKernel
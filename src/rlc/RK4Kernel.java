@@ -0,0 +1,140 @@
+package rlc;
+
+/**
+ * RK4Kernel advances the RLC circuit with the classic 4th order
+ * Runge-Kutta method, exactly like SimState.NextState(), but it keeps the
+ * state variables in primitive buffers instead of a chain of objects:
+ *
+ *   volts[ii] = voltage on the capacitor after ii steps
+ *   amps[ii]  = current in the inductor after ii steps
+ *
+ * The intermediate slopes and states live in local variables, so a run of
+ * any length allocates nothing at all. The caller owns the buffers and
+ * should re-use them from one run to the next.
+ *
+ * As a Solver it takes exactly one fixed step per clock tick. If the
+ * EventDetector heats the coil (see ThermalModel), each step uses the
+ * resistance the coil has at its start.
+ */
+
+//----------------------------------------------------------------------
+//           RK4Kernel
+//----------------------------------------------------------------------
+public final class RK4Kernel implements Solver
+{
+    /**
+     * Solver interface: one Runge-Kutta step per clock tick.
+     */
+    public void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt) {
+        run(c, volts, amps, nSamples, dt);
+    }
+
+    /**
+     * Solver interface: one Runge-Kutta step per clock tick, looking for events.
+     */
+    public void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt, EventDetector events) {
+        run(c, volts, amps, nSamples, dt, events);
+    }
+
+    /**
+     * Compute state [ii+1] from state [ii] using one Runge-Kutta step.
+     *
+     * @param c = component values of the circuit
+     * @param volts = capacitor voltage buffer
+     * @param amps = inductor current buffer
+     * @param ii = index of the starting state
+     * @param dt = incremental unit of time (seconds)
+     */
+    public static void step(Circuit c, double[] volts, double[] amps, int ii, double dt) {
+        step(c, c.getResistance(), volts, amps, ii, dt);
+    }
+
+    /**
+     * Same as step() above, but with the resistance given, instead of the
+     * circuit's own, for a coil whose resistance changes as it heats up.
+     *
+     * @param R = resistance to use for this step (ohms)
+     */
+    public static void step(Circuit c, double R, double[] volts, double[] amps, int ii, double dt) {
+        double L = c.getInductance();
+        double v = volts[ii];
+        double i = amps[ii];
+
+        // m0 is derivative at the current time
+        double m0V = c.dV_dt(v, i);
+        double m0I = (v - i * R) / L;
+
+        // m1 is our first estimate of derivative after one-half a time increment
+        double s0V = v + m0V * dt / 2;
+        double s0I = i + m0I * dt / 2;
+        double m1V = c.dV_dt(s0V, s0I);
+        double m1I = (s0V - s0I * R) / L;
+
+        // m2 is our second estimate of derivative after one-half a time increment
+        double s1V = v + m1V * dt / 2;
+        double s1I = i + m1I * dt / 2;
+        double m2V = c.dV_dt(s1V, s1I);
+        double m2I = (s1V - s1I * R) / L;
+
+        // m3 is derivative after one complete time increment
+        double s2V = v + m2V * dt;
+        double s2I = i + m2I * dt;
+        double m3V = c.dV_dt(s2V, s2I);
+        double m3I = (s2V - s2I * R) / L;
+
+        // combine m0 - m3 according to the Runge-Kutta rules
+        volts[ii+1] = v + (m0V + 2*m1V + 2*m2V + m3V) / 6 * dt;
+        amps[ii+1]  = i + (m0I + 2*m1I + 2*m2I + m3I) / 6 * dt;
+    }
+
+    /**
+     * Run the simulation from the initial state in volts[0] and amps[0],
+     * filling in states [1] ... [nSteps-1].
+     *
+     * @param c = component values of the circuit
+     * @param volts = capacitor voltage buffer, at least nSteps long
+     * @param amps = inductor current buffer, at least nSteps long
+     * @param nSteps = total number of states, including the initial state
+     * @param dt = time between each clock tick (seconds)
+     */
+    public static void run(Circuit c, double[] volts, double[] amps, int nSteps, double dt) {
+        for (int ii=1; ii<nSteps; ii++) {
+            step(c, volts, amps, ii-1, dt);
+        }
+    }
+
+    /**
+     * Same as run() above, but look for events in every step, and stop at
+     * the first tick after an event that ends the run.
+     *
+     * @param events = detector to fill in, or null for none
+     * @return number of states filled in, including the initial state
+     */
+    public static int run(Circuit c, double[] volts, double[] amps, int nSteps, double dt, EventDetector events) {
+        if (events == null) {
+            run(c, volts, amps, nSteps, dt);
+            return nSteps;
+        }
+
+        events.reset();
+        double dV0 = c.dV_dt(volts[0], amps[0]);
+        for (int ii=1; ii<nSteps; ii++) {
+            // the resistance goes up as the coil heats, so the current's slope is worked out afresh
+            double R = events.getResistance(c);
+            double dI0 = c.dI_dt(volts[ii-1], amps[ii-1], R);
+            step(c, R, volts, amps, ii-1, dt);
+
+            // voltage slope at the end of this step is the slope at the start of the next
+            double dV1 = c.dV_dt(volts[ii], amps[ii]);
+            double dI1 = c.dI_dt(volts[ii], amps[ii], R);
+            if (events.check(c, (ii-1) * dt, dt, volts[ii-1], amps[ii-1], dV0, dI0,
+                                                 volts[ii], amps[ii], dV1, dI1)) {
+                events.setTicks(ii + 1);
+                return ii + 1;
+            }
+            dV0 = dV1;
+        }
+        events.setTicks(nSteps);
+        return nSteps;
+    }
+} // end class RK4Kernel
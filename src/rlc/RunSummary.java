@@ -0,0 +1,134 @@
+package rlc;
+
+/**
+ * RunSummary boils one simulation run down to the handful of numbers that
+ * matter when comparing designs:
+ * - peak inductor current, and the time it happened
+ * - time of the first zero-crossing of the current
+ * - pulse width (full width of the current pulse at half its peak)
+ * - I^2 t, the integral of current squared, which sets how hot the coil gets
+ * - how hot the coil got, if the run had a ThermalModel
+ * - capacitor voltage at the end of the run
+ *
+ * Almost all of it was already found by the solver while it ran (see
+ * EventDetector): the peak, the zero-crossing and the end of the pulse are
+ * exact event times, not the nearest of 500 ticks, and I^2 t was added up
+ * step by step. The one thing that can't be known until the peak is, is
+ * where the pulse rose through half of it; the current only goes up on the
+ * way to the peak, so that is a binary search of the ticks and one root
+ * inside the step, not a scan. A summary is immutable, so it can be handed
+ * between threads freely.
+ */
+
+//----------------------------------------------------------------------
+//           RunSummary
+//----------------------------------------------------------------------
+public final class RunSummary
+{
+    // inputs
+    private final double m_voltage;        // initial capacitor charge (volts)
+    private final Circuit m_circuit;        // component values
+
+    // results
+    private final double m_peakCurrent;    // amps
+    private final double m_peakTime;       // seconds
+    private final double m_zeroCrossing;   // seconds, NaN if the current never reverses
+    private final double m_pulseWidth;     // seconds
+    private final double m_action;         // amp^2 seconds
+    private final double m_finalVoltage;   // volts
+    private final double m_temperatureRise;// C, NaN if the coil wasn't heated
+
+    private RunSummary(double voltage, Circuit circuit,
+                       double peakCurrent, double peakTime, double zeroCrossing,
+                       double pulseWidth, double action, double finalVoltage, double temperatureRise) {
+        m_voltage = voltage;
+        m_circuit = circuit;
+        m_peakCurrent = peakCurrent;
+        m_peakTime = peakTime;
+        m_zeroCrossing = zeroCrossing;
+        m_pulseWidth = pulseWidth;
+        m_action = action;
+        m_finalVoltage = finalVoltage;
+        m_temperatureRise = temperatureRise;
+    }
+
+    /**
+     * Summarize a run that has just been simulated in a context.
+     *
+     * @param context = the run, with the events its solver found
+     * @return summary of the run
+     */
+    public static RunSummary summarize(SimContext context) {
+        EventDetector events = context.getEvents();
+        double[] volts = context.getVolts();
+        double[] amps = context.getAmps();
+        int nTicks = context.getTicks();
+        double dt = context.getTimeStep();
+        double peak = context.getPeakCurrent();
+        double peakTime = context.getPeakTime();
+
+        // from half the peak on the way up, to half the peak on the way down
+        double pulseWidth = 0;
+        if (peak > 0) {
+            double half = peak / 2;
+            double fall = events.hasOccurred(EventDetector.HALF_PEAK)
+                        ? events.getTime(EventDetector.HALF_PEAK)
+                        : (nTicks - 1) * dt;        // still going at the end of the run
+            pulseWidth = fall - riseTime(context.getCircuit(), volts, amps, nTicks, dt, half, peakTime);
+        }
+
+        return new RunSummary(volts[0], context.getCircuit(), peak, peakTime,
+                              events.getTime(EventDetector.CURRENT_ZERO),
+                              pulseWidth, events.getAction(), volts[nTicks-1],
+                              context.getTemperatureRise());
+    }
+
+    /**
+     * The current only rises until the peak, so find the step where it
+     * passed through the level by binary search, then the time inside it.
+     * @return time (seconds) the current rose through the level, before the peak
+     */
+    private static double riseTime(Circuit circuit, double[] volts, double[] amps, int nTicks, double dt,
+                                   double level, double peakTime) {
+        if (amps[0] >= level)
+            return 0;
+        int hi = Math.min(nTicks - 1, (int)Math.ceil(peakTime / dt));
+        if (amps[hi] < level)
+            hi = Math.min(nTicks - 1, (int)(peakTime / dt));
+        if (amps[hi] < level)
+            return peakTime;                // the whole rise is inside one step
+
+        // amps[lo] < level <= amps[hi]
+        int lo = 0;
+        while (hi - lo > 1) {
+            int middle = (lo + hi) >>> 1;
+            if (amps[middle] < level)
+                lo = middle;
+            else
+                hi = middle;
+        }
+        return EventDetector.crossingTime(circuit, lo * dt, dt, volts[lo], amps[lo], volts[hi], amps[hi], level);
+    }
+
+    public double getVoltage()          { return m_voltage; }
+    public Circuit getCircuit()         { return m_circuit; }
+    public double getPeakCurrent()      { return m_peakCurrent; }
+    public double getPeakTime()         { return m_peakTime; }
+    public double getZeroCrossing()     { return m_zeroCrossing; }
+    public double getPulseWidth()       { return m_pulseWidth; }
+    public double getAction()           { return m_action; }
+    public double getFinalVoltage()     { return m_finalVoltage; }
+
+    /**
+     * @return how much hotter the coil got during the run (C), NaN if the
+     * run had no ThermalModel
+     */
+    public double getTemperatureRise()  { return m_temperatureRise; }
+
+    /**
+     * @return true if the current reversed direction during the run
+     */
+    public boolean hasZeroCrossing() {
+        return !Double.isNaN(m_zeroCrossing);
+    }
+} // end class RunSummary
@@ -0,0 +1,204 @@
+package rlc;
+
+/**
+ * SimContext holds everything that belongs to ONE simulation run:
+ * - the component values (Circuit)
+ * - the trajectory, capacitor voltage and inductor current at every tick
+ * - the clock: number of ticks and time between them
+ * - running statistics: peak current, events found by the solver, and
+ *   what the solver had to do to get there
+ * - optionally, a ThermalModel of the coil, heated step by step as it runs
+ *
+ * Nothing in here is static, so any number of runs can go on at once, each
+ * on its own thread with its own context (two applet windows, a batch job,
+ * a parameter sweep...). A context is not itself thread-safe: one thread
+ * fills it in, and may then hand it to another thread to read.
+ *
+ * The buffers are allocated once and re-used by every run. A run may use
+ * fewer ticks than the buffers hold (setSamples), e.g. a quick coarse run
+ * followed by a finer one in the same context.
+ */
+
+//----------------------------------------------------------------------
+//           SimContext
+//----------------------------------------------------------------------
+public final class SimContext
+{
+    // trajectory
+    private final double[] m_volts;     // capacitor voltage at each clock tick (volts)
+    private final double[] m_amps;      // inductor current at each clock tick (amps)
+    private int m_nSamples;             // ticks in a run, including the initial state
+
+    // the run
+    private Circuit m_circuit;          // component values
+    private double m_dt;                // time between each clock tick (seconds)
+    private int m_nTicks;               // ticks actually filled in
+
+    // running statistics
+    private double m_maxCurrent;        // amps
+    private double m_maxCurrentTime;    // seconds
+    private final EventDetector m_events = new EventDetector();
+    private String m_sSolverReport = "";
+
+    /**
+     * @param nSamples = total number of clock ticks in a run, including the initial state
+     */
+    public SimContext(int nSamples) {
+        m_nSamples = nSamples;
+        m_volts = new double[nSamples];
+        m_amps = new double[nSamples];
+    }
+
+    /**
+     * @param nSamples = total number of clock ticks in the following runs,
+     * including the initial state; no more than getCapacity()
+     */
+    public void setSamples(int nSamples) {
+        if (nSamples < 1 || nSamples > m_volts.length)
+            throw new IllegalArgumentException("samples must be 1 ... " + m_volts.length);
+        m_nSamples = nSamples;
+    }
+
+    /**
+     * Heat the coil during the following runs (see ThermalModel), and let the
+     * solver use its resistance as it warms up instead of the circuit's own.
+     * @param heat = model of the coil, owned by the calling thread, or null for a fixed resistance
+     * @param ambient = temperature of the coil at the start of each run (C)
+     */
+    public void setThermalModel(ThermalModel heat, double ambient) {
+        m_events.setThermalModel(heat, ambient);
+    }
+
+    /**
+     * Run the simulation.
+     *
+     * @param solver = how to integrate, owned by the calling thread
+     * @param c = component values
+     * @param volts = initial capacitor charge (volts)
+     * @param amps = initial inductor current (amps)
+     * @param dt = time between each clock tick (seconds)
+     */
+    public void run(Solver solver, Circuit c, double volts, double amps, double dt) {
+        m_circuit = c;
+        m_dt = dt;
+        m_volts[0] = volts;
+        m_amps[0] = amps;
+        solver.solve(c, m_volts, m_amps, m_nSamples, dt, m_events);
+        m_nTicks = Math.max(1, m_events.getTicks());
+
+        // the solver found the exact peak while it ran; if there wasn't one,
+        // the current only fell or only rose, so the highest is at one end
+        resetStatistics();
+        if (m_events.hasOccurred(EventDetector.CURRENT_PEAK)) {
+            m_maxCurrent = m_events.getCurrent(EventDetector.CURRENT_PEAK);
+            m_maxCurrentTime = m_events.getTime(EventDetector.CURRENT_PEAK);
+        } else {
+            recordCurrent(m_amps[0], 0);
+            recordCurrent(m_amps[m_nTicks-1], (m_nTicks-1) * dt);
+        }
+        m_sSolverReport = describe(solver);
+    }
+
+    /**
+     * Start a run that will be stepped by hand (e.g. with SimState) instead
+     * of by a Solver; feed it each new current with recordCurrent().
+     *
+     * @param c = component values
+     * @param dt = time between each clock tick (seconds)
+     */
+    public void begin(Circuit c, double dt) {
+        m_circuit = c;
+        m_dt = dt;
+        m_nTicks = 0;
+        m_events.reset();
+        m_sSolverReport = "";
+        resetStatistics();
+    }
+
+    /**
+     * a little bookkeeping to help the graphing
+     * @param amps = inductor current (amps)
+     * @param t = time it happened (seconds)
+     */
+    public void recordCurrent(double amps, double t) {
+        if (amps > m_maxCurrent) {
+            m_maxCurrent = amps;
+            m_maxCurrentTime = t;
+        }
+    }
+
+    private void resetStatistics() {
+        m_maxCurrent = 0;
+        m_maxCurrentTime = 0;
+    }
+
+    public Circuit getCircuit()         { return m_circuit; }
+    public double[] getVolts()          { return m_volts; }
+    public double[] getAmps()           { return m_amps; }
+    public int getSamples()             { return m_nSamples; }
+    public int getCapacity()            { return m_volts.length; }
+    public double getTimeStep()         { return m_dt; }
+    public EventDetector getEvents()    { return m_events; }
+
+    /**
+     * @return number of ticks filled in by the last run, less than
+     * getSamples() if an event stopped it early
+     */
+    public int getTicks()               { return m_nTicks; }
+
+    /**
+     * @return total time covered by the buffers (seconds)
+     */
+    public double getElapsedTime()      { return m_dt * m_nSamples; }
+
+    /**
+     * @return maximum inductor current (amps)
+     */
+    public double getPeakCurrent()      { return m_maxCurrent; }
+
+    /**
+     * @return time of the maximum inductor current (seconds)
+     */
+    public double getPeakTime()         { return m_maxCurrentTime; }
+
+    /**
+     * @return time the current first reversed (seconds), NaN if it didn't
+     */
+    public double getZeroCrossingTime() { return m_events.getTime(EventDetector.CURRENT_ZERO); }
+
+    /**
+     * @return how much hotter the coil got during the last run (C), NaN
+     * without a ThermalModel
+     */
+    public double getTemperatureRise() {
+        ThermalModel heat = m_events.getThermalModel();
+        return (heat == null) ? Double.NaN : heat.getPeakTemperatureRise();
+    }
+
+    /**
+     * @return one line about the work the solver did, empty if nothing interesting
+     */
+    public String getSolverReport()     { return m_sSolverReport; }
+
+    /**
+     * Copy the solver's counters now, before the solver is used for another run.
+     */
+    private static String describe(Solver solver) {
+        if (solver instanceof DormandPrince45) {
+            DormandPrince45 rk45 = (DormandPrince45)solver;
+            String s = "RK45: " + rk45.getAcceptedSteps() + " steps, "
+                     + rk45.getRejectedSteps() + " rejected";
+            if (!rk45.isComplete())
+                s += " (gave up)";
+            else if (rk45.getForcedSteps() > 0)
+                s += ", " + rk45.getForcedSteps() + " over tolerance";
+            return s;
+        }
+        if (solver instanceof ImplicitTRBDF2) {
+            ImplicitTRBDF2 implicit = (ImplicitTRBDF2)solver;
+            return "TR-BDF2: " + implicit.getSteps() + " steps, "
+                 + implicit.getIterations() + " iterations";
+        }
+        return "";
+    }
+} // end class SimContext
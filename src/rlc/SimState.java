@@ -33,21 +33,6 @@ package rlc;/*
 public class SimState
 {
 
-    //----------------------------------------------------------------------
-    //           Slope
-    //----------------------------------------------------------------------
-    /**
-    * helper class contains the slope (derivative) of the state variables
-    */
-    private class Slope {
-        public Slope(double dv, double di) {
-            dV_dt = dv;
-            dI_dt = di;
-        }
-        public double dV_dt;
-        public double dI_dt;
-    }
-
     /**
      * state variable: voltage on the capacitor
      */
@@ -58,16 +43,12 @@ public class SimState
      */
     public double m_Lcurrent;           // amps
     
-    /**
-     * cached value of the maximum current (helps the graphing)
-     */
-    static public double m_fMax = 0;    // amps
-    
-    // represents the physical components
-    private float m_R;                  // ohms
-    private float m_L;                  // henries
-    private float m_C;                  // farads
-    private boolean m_diode;             // true=diode, false=no diode
+    // represents the physical components, shared by every state in a run
+    private Circuit m_circuit;
+
+    // the run this state belongs to, shared by every state in a run (may be null)
+    private SimContext m_context;
+    private double m_time;              // seconds since the start of the run
 
     /**
      * ctor (must have NO return value! not even void!)
@@ -81,17 +62,46 @@ public class SimState
         m_Cvoltage = old.m_Cvoltage + dV;
         m_Lcurrent = old.m_Lcurrent + dI;
         
-        // copy the old component values, they do not change over time
-        m_R = old.m_R;
-        m_L = old.m_L;
-        m_C = old.m_C;
-        m_diode = old.m_diode;
+        // share the old component values, they do not change over time
+        m_circuit = old.m_circuit;
+        m_context = old.m_context;
+        m_time = old.m_time;
     }
     
     public SimState(double volts, double amps) {
         m_Cvoltage = volts;
         m_Lcurrent = amps;
     }
+
+    /**
+     * ctor for the initial state of a run; the running statistics
+     * (e.g. maximum current) are kept in the context, not in here
+     *
+     * @param context = the run, which must have been begun with the component values
+     * @param volts = initial capacitor charge (volts)
+     * @param amps = initial inductor current (amps)
+     */
+    public SimState(SimContext context, double volts, double amps) {
+        m_Cvoltage = volts;
+        m_Lcurrent = amps;
+        m_circuit = context.getCircuit();
+        m_context = context;
+        context.recordCurrent(amps, 0);
+    }
+
+    /**
+     * ctor for a view of one entry in the primitive buffers used by RK4Kernel
+     *
+     * @param circuit = component values of the RLC circuit
+     * @param volts = capacitor voltage buffer
+     * @param amps = inductor current buffer
+     * @param ii = index of the state to look at
+     */
+    public SimState(Circuit circuit, double[] volts, double[] amps, int ii) {
+        m_Cvoltage = volts[ii];
+        m_Lcurrent = amps[ii];
+        m_circuit = circuit;
+    }
     
     /**
      * initialize the component values for the RLC circuit
@@ -102,10 +112,14 @@ public class SimState
      * @param diode = true for protection diode, false for no diode
      */
     public void init_comp(float R, float L, float C, boolean diode) {
-        m_R = R;
-        m_L = L;
-        m_C = C;
-        m_diode = diode;
+        m_circuit = new Circuit(R, L, C, diode);
+    }
+
+    /**
+     * @return the component values of the RLC circuit
+     */
+    public Circuit getCircuit() {
+        return m_circuit;
     }
 
     /**
@@ -117,69 +131,21 @@ public class SimState
      * @return an object with the new state of the RLC circuit
      */
     public SimState NextState( double dt ) {
-        // implementation of physical model goes here!
-        //-------(1) linear model----------------------------
-        //double dV = dV_dt() * dt;
-        //double dI = dI_dt() * dt;
-        
-        //-------(2) Runge-Kutta 4th order model-------------
-        // m0 is derivative at the current time
-        // s0 is system state after one-half the time increment
-        Slope m0 = new Slope( this.dV_dt(), this.dI_dt() );
-        SimState s0 = new SimState( this, m0.dV_dt * dt / 2, m0.dI_dt * dt / 2);
-                                    
-        // m1 is our first estimate of derivative after one-half a time increment
-        // s1 is our refined system state after one-half a time increment
-        Slope m1 = new Slope( s0.dV_dt(), s0.dI_dt() );
-        SimState s1 = new SimState( this, m1.dV_dt * dt / 2, m1.dI_dt * dt / 2);
-        
-        // m2 is our second estimate of derivative after one-half a time increment
-        // s2 is system state after one full time increment
-        Slope m2 = new Slope( s1.dV_dt(), s1.dI_dt() );
-        SimState s2 = new SimState( this, m2.dV_dt * dt, m2.dI_dt * dt );
+        // the Runge-Kutta arithmetic lives in RK4Kernel, which works on
+        // primitive buffers; we are just a thin view over one step of it
+        double[] volts = { m_Cvoltage, 0 };
+        double[] amps  = { m_Lcurrent, 0 };
+        RK4Kernel.step(m_circuit, volts, amps, 0, dt);
+        SimState result = new SimState( m_circuit, volts, amps, 1 );
+        result.m_context = m_context;
+        result.m_time = m_time + dt;
 
-        // m3 is derivative after one complete time increment
-        Slope m3 = new Slope( s2.dV_dt(), s2.dI_dt() );
-        
-        // m (finally!) is the derivative obtained by combining m0 - m3
-        // according to the Runge-Kutta rules
-        Slope m4 = new Slope( (m0.dV_dt + 2*m1.dV_dt + 2*m2.dV_dt + m3.dV_dt)/6,
-                              (m0.dI_dt + 2*m1.dI_dt + 2*m2.dI_dt + m3.dI_dt)/6);
-        
-        double dV = m4.dV_dt * dt;
-        double dI = m4.dI_dt * dt;
-        SimState result = new SimState( this, dV, dI );
-        
-        // a little bbookkeepping to help the graphing
-        if (s1.m_Lcurrent > m_fMax) {
-            m_fMax = s1.m_Lcurrent;
+        // a little bookkeeping to help the graphing, kept with this run only
+        if (m_context != null) {
+            m_context.recordCurrent(result.m_Lcurrent, result.m_time);
         }
         return result;
     }
-    
-    /**
-     * Calculate the instantaneous derivative of capacitor voltage
-     * with respect to time.
-     * @return derivative of the capacitor voltage
-     */
-    private double dV_dt() {
-        if (m_diode) {
-            // note: diode is connected in REVERSE across the capacitor to protect it
-            // hence we give the diode the NEGATIVE of Vc
-            return ((-1.) * diodeCurrent(this.m_Cvoltage* (-1.)) - this.m_Lcurrent) / m_C;
-        }
-        else
-            return (0 - this.m_Lcurrent) / m_C;
-    }
-    
-    /**
-     * Calculate the instaneous derivative of inductor current
-     * with respect to time.
-     * @return derivative of the inductor current
-     */
-    private double dI_dt() {
-        return (this.m_Cvoltage - this.m_Lcurrent * m_R) / m_L;
-    }
 
     /**
      * Calculate diode current, based on its terminal voltage.
@@ -193,10 +159,22 @@ public class SimState
     public static double diodeCurrent(double voltage) {
         double Id = 0;
         if (voltage > 0)
-            Id = Math.exp( 11.51292547 * voltage ) / 100000.;
+            Id = Math.exp( DIODE_K * voltage ) / 100000.;
 
         return Id;
     }
+
+    /**
+     * Calculate the diode's small-signal conductance dId/dVd, which is what
+     * an implicit solver needs to linearize the diode.
+     * @return derivative of diode current with respect to its voltage (amps/volt)
+     */
+    public static double diodeConductance(double voltage) {
+        return DIODE_K * diodeCurrent(voltage);
+    }
+
+    // exponent of the diode model, Id = A e^(kV)
+    static final double DIODE_K = 11.51292547;  // 1/volts
 } // end class SimState
 
 
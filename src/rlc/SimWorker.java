@@ -0,0 +1,221 @@
+package rlc;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * SimWorker runs simulations for a window on a thread of its own, so that
+ * dragging a slider never waits for a run to finish:
+ * - submit() just leaves the new inputs in a one-request mailbox, so a burst
+ *   of slider events collapses into the newest one,
+ * - a run whose inputs have already been replaced is cancelled between two
+ *   steps (see EventDetector.setCancelled) and its result thrown away, and
+ * - only a result for the newest inputs is published; the window is told
+ *   on the Swing event thread, and picks it up with takeResult().
+ * So the graph is never more than one run behind the sliders, however long
+ * a run takes.
+ *
+ * Progressive refinement: each request can carry a ladder of step counts,
+ * e.g. 500, 2000, 8000... The coarse first rung is published as soon as it
+ * is done, so the graph follows the slider at once; then each finer rung
+ * is run and swapped in as it completes, until the ladder runs out or
+ * newer inputs arrive.
+ *
+ * The results are triple buffered, in three SimContexts that are swapped,
+ * never copied: one the window is showing, one that is finished but not
+ * yet shown, and one the worker is filling in. The window can keep reading
+ * its context for as long as it likes, e.g. while painting.
+ *
+ * Typical usage, from the window:
+ *    SimWorker worker = new SimWorker(new SimContext(8000), () -> showResult());
+ *    worker.submit(solver, circuit, volts, seconds, new int[] {500, 2000, 8000});   // returns at once
+ *    ...
+ *    void showResult() { m_sim = worker.takeResult(); repaint(); }
+ */
+
+//----------------------------------------------------------------------
+//           SimWorker
+//----------------------------------------------------------------------
+public final class SimWorker implements Runnable
+{
+    private final Object m_lock = new Object();
+    private final Runnable m_listener;  // runs on the event thread when there's a new result
+    private final Thread m_thread;
+
+    // the three buffers
+    private SimContext m_front;         // the window's
+    private SimContext m_ready;         // newest result not yet taken
+    private SimContext m_back;          // the worker's
+    private boolean m_hasReady;         // TRUE = m_ready is newer than m_front
+
+    // the mailbox, and what the worker is doing
+    private Request m_pending;          // newest inputs not yet started, null if none
+    private long m_generation;          // counts the submits
+    private long m_runningGeneration;   // inputs of the ladder in progress, 0 if none
+    private boolean m_shutdown;
+
+    /**
+     * @param front = context the window is showing now, to swap with the others;
+     *                its capacity is the most steps any rung can have
+     * @param listener = told (on the event thread) when takeResult() has something new
+     */
+    public SimWorker(SimContext front, Runnable listener) {
+        m_front = front;
+        m_ready = new SimContext(front.getCapacity());
+        m_back = new SimContext(front.getCapacity());
+        m_listener = listener;
+        m_thread = new Thread(this, "SimWorker");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Ask for a run with new inputs, replacing (and cancelling) any older ones.
+     * The solver must be used by this worker alone from now on.
+     *
+     * @param solver = how to integrate
+     * @param c = component values
+     * @param volts = initial capacitor charge (volts)
+     * @param duration = total simulation time (seconds), the same for every rung
+     * @param ladder = total number of clock ticks in each run, coarsest first;
+     *                 none more than the contexts' capacity
+     */
+    public void submit(Solver solver, Circuit c, double volts, double duration, int[] ladder) {
+        for (int ii=0; ii<ladder.length; ii++) {
+            if (ladder[ii] < 1 || ladder[ii] > m_front.getCapacity())
+                throw new IllegalArgumentException("each rung must be 1 ... " + m_front.getCapacity() + " steps");
+        }
+        synchronized (m_lock) {
+            m_generation++;
+            m_pending = new Request(solver, c, volts, duration, ladder.clone(), m_generation);
+            if (m_runningGeneration != 0)
+                m_back.getEvents().setCancelled(true);
+            m_lock.notifyAll();
+        }
+    }
+
+    /**
+     * @return the newest result; the window may read it until the next call
+     */
+    public SimContext takeResult() {
+        synchronized (m_lock) {
+            if (m_hasReady) {
+                SimContext shown = m_front;
+                m_front = m_ready;
+                m_ready = shown;
+                m_hasReady = false;
+            }
+            return m_front;
+        }
+    }
+
+    /**
+     * Wait until every run submitted so far is finished, or replaced.
+     * Doesn't need the event thread, so it's safe to call from there.
+     */
+    public void awaitIdle() throws InterruptedException {
+        synchronized (m_lock) {
+            while ((m_pending != null || m_runningGeneration != 0) && !m_shutdown)
+                m_lock.wait();
+        }
+    }
+
+    /**
+     * Stop the worker thread, abandoning any run in progress.
+     */
+    public void shutdown() {
+        synchronized (m_lock) {
+            m_shutdown = true;
+            m_pending = null;
+            if (m_runningGeneration != 0)
+                m_back.getEvents().setCancelled(true);
+            m_lock.notifyAll();
+        }
+    }
+
+    /**
+     * The worker thread: take the newest inputs, and run them up the ladder
+     * of step counts, publishing each rung while they're still wanted.
+     */
+    public void run() {
+        while (true) {
+            Request request;
+            synchronized (m_lock) {
+                while (m_pending == null && !m_shutdown) {
+                    try {
+                        m_lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (m_shutdown)
+                    return;
+                request = m_pending;
+                m_pending = null;
+                m_runningGeneration = request.m_generation;
+            }
+
+            for (int rung=0; rung<request.m_ladder.length; rung++) {
+                if (!runRung(request, request.m_ladder[rung]))
+                    break;      // newer inputs, or shutting down
+            }
+
+            synchronized (m_lock) {
+                m_runningGeneration = 0;
+                m_lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return true if the run finished and was published
+     */
+    private boolean runRung(Request request, int nSamples) {
+        SimContext context;
+        synchronized (m_lock) {
+            if (request.m_generation != m_generation || m_shutdown)
+                return false;
+            context = m_back;
+            context.getEvents().setCancelled(false);
+        }
+
+        context.setSamples(nSamples);
+        context.run(request.m_solver, request.m_circuit, request.m_volts, 0, request.m_duration / nSamples);
+
+        boolean published = false;
+        synchronized (m_lock) {
+            if (!context.getEvents().isCancelled() && request.m_generation == m_generation) {
+                m_back = m_ready;
+                m_ready = context;
+                m_hasReady = true;
+                published = true;
+            }
+        }
+        if (published)
+            SwingUtilities.invokeLater(m_listener);
+        return published;
+    }
+
+    //----------------------------------------------------------------------
+    //           Request
+    //----------------------------------------------------------------------
+    /**
+     * helper class holds the inputs of one run
+     */
+    private static final class Request {
+        final Solver m_solver;
+        final Circuit m_circuit;
+        final double m_volts;
+        final double m_duration;
+        final int[] m_ladder;
+        final long m_generation;
+
+        Request(Solver solver, Circuit c, double volts, double duration, int[] ladder, long generation) {
+            m_solver = solver;
+            m_circuit = c;
+            m_volts = volts;
+            m_duration = duration;
+            m_ladder = ladder;
+            m_generation = generation;
+        }
+    }
+} // end class SimWorker
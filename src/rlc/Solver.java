@@ -0,0 +1,40 @@
+package rlc;
+
+/**
+ * Solver is anything that can run the RLC simulation and report the
+ * state of the circuit at evenly spaced clock ticks, e.g. for graphing.
+ *
+ * How a solver gets from one tick to the next is its own business: it may
+ * take exactly one step per tick (RK4Kernel), or any number of steps of
+ * varying size in between (DormandPrince45).
+ *
+ * A solver can also watch for events while it runs (peak current, zero
+ * crossings, thresholds), see EventDetector, and stop early at one of them.
+ */
+
+//----------------------------------------------------------------------
+//           Solver
+//----------------------------------------------------------------------
+public interface Solver
+{
+    /**
+     * Run the simulation from the initial state in volts[0] and amps[0],
+     * filling in the states at ticks [1] ... [nSamples-1].
+     *
+     * @param c = component values of the circuit
+     * @param volts = capacitor voltage buffer, at least nSamples long
+     * @param amps = inductor current buffer, at least nSamples long
+     * @param nSamples = total number of ticks, including the initial state
+     * @param dt = time between each clock tick (seconds)
+     */
+    void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt);
+
+    /**
+     * Same as above, but also look for events inside every step. If an event
+     * stops the run, only the ticks up to the first one at or after the event
+     * are filled in; events.getTicks() says how many.
+     *
+     * @param events = detector to fill in (it is reset first), or null for none
+     */
+    void solve(Circuit c, double[] volts, double[] amps, int nSamples, double dt, EventDetector events);
+}
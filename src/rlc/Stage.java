@@ -0,0 +1,71 @@
+package rlc;
+
+/**
+ * Stage is one stage of a multi-stage coilgun: its own capacitor bank and
+ * coil, sitting somewhere along the barrel, and the projectile position
+ * at which its switch fires.
+ *
+ * Positions along the barrel are in meters, measured to the projectile's
+ * centre and to the coil's centre, from wherever you like (e.g. the
+ * breech). The stage's InductanceProfile is measured from its own coil
+ * centre, as usual.
+ *
+ * A Stage is immutable; withTrigger() makes a copy with a different
+ * trigger position, which is how MultiStageLauncher tunes a launcher.
+ */
+
+//----------------------------------------------------------------------
+//           Stage
+//----------------------------------------------------------------------
+public final class Stage
+{
+    private final Circuit m_circuit;            // R, C and diode; L comes from the profile
+    private final InductanceProfile m_profile;  // L(x) around this coil
+    private final double m_voltage;             // initial capacitor charge (volts)
+    private final double m_coilPosition;       // meters along the barrel
+    private final double m_trigger;            // meters along the barrel
+
+    /**
+     * @param c = component values; its inductance is not used
+     * @param profile = inductance of this coil as a function of projectile position
+     * @param voltage = initial capacitor charge (volts)
+     * @param coilPosition = where the centre of the coil is along the barrel (meters)
+     * @param trigger = where the projectile is when the switch fires (meters)
+     */
+    public Stage(Circuit c, InductanceProfile profile, double voltage, double coilPosition, double trigger) {
+        m_circuit = c;
+        m_profile = profile;
+        m_voltage = voltage;
+        m_coilPosition = coilPosition;
+        m_trigger = trigger;
+    }
+
+    /**
+     * @param trigger = new trigger position (meters along the barrel)
+     * @return a copy of this stage that fires at the new position
+     */
+    public Stage withTrigger(double trigger) {
+        return new Stage(m_circuit, m_profile, m_voltage, m_coilPosition, trigger);
+    }
+
+    public Circuit getCircuit()                 { return m_circuit; }
+    public InductanceProfile getProfile()       { return m_profile; }
+    public double getVoltage()                  { return m_voltage; }
+    public double getCoilPosition()             { return m_coilPosition; }
+    public double getTrigger()                  { return m_trigger; }
+
+    /**
+     * @return energy stored in the capacitor bank before it fires (joules)
+     */
+    public double getEnergy() {
+        return 0.5 * m_circuit.getCapacitance() * m_voltage * m_voltage;
+    }
+
+    /**
+     * @return how long to simulate the discharge: two cycles at the natural
+     * frequency with the projectile in the middle of the coil (seconds)
+     */
+    public double getDuration() {
+        return Circuit.getTotalSimulationTime((float)m_profile.getPeak(), (float)m_circuit.getCapacitance());
+    }
+} // end class Stage
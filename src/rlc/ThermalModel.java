@@ -0,0 +1,116 @@
+package rlc;
+
+import coilsim.CoilResult;
+
+/**
+ * ThermalModel follows the temperature of the coil's copper during a pulse,
+ * so we can tell whether a design will cook itself. After every step the
+ * EventDetector hands us the I^2 t of the step, and we
+ * - heat the copper with it, from the copper's mass and specific heat, and
+ * - raise the coil's resistance with copper's temperature coefficient,
+ *   which the solver uses for the next step. It is the resistance halfway
+ *   through that step, guessed from how much the last step heated the coil,
+ *   so the error doesn't build up with the number of steps.
+ * So it all happens inside the step loop, with no extra pass over the run.
+ * To heat the coil during a run, give the model to SimContext.setThermalModel.
+ *
+ * A pulse lasts milliseconds, far too short for heat to leave the coil, so
+ * no cooling is modelled: the temperature only ever goes up.
+ *
+ * Like EventDetector, a model belongs to one run at a time; use one per thread.
+ */
+
+//----------------------------------------------------------------------
+//           ThermalModel
+//----------------------------------------------------------------------
+public final class ThermalModel
+{
+    public static final double COPPER_SPECIFIC_HEAT = 385.;       // J/(kg K)
+    public static final double COPPER_TEMPERATURE_COEFFICIENT = 0.00393;  // 1/K, at 20C
+    public static final double REFERENCE_TEMPERATURE = 20.;      // C, where CopperWire gives the resistance
+
+    // the coil
+    private final double m_coilOhms;        // at 20C
+    private final double m_otherOhms;       // rest of the circuit, doesn't heat up
+    private final double m_heatCapacity;    // J/K
+
+    // the run
+    private double m_ambient;               // C
+    private double m_temperature;           // C
+    private double m_energy;                // joules put into the coil
+    private double m_resistance;            // ohms, coil plus the rest, for the next step
+
+    /**
+     * @param coilOhms = resistance of the coil at 20C (ohms)
+     * @param copperKg = weight of the copper in the coil (kg)
+     * @param otherOhms = resistance of the rest of the circuit (ohms)
+     */
+    public ThermalModel(double coilOhms, double copperKg, double otherOhms) {
+        m_coilOhms = coilOhms;
+        m_otherOhms = otherOhms;
+        m_heatCapacity = copperKg * COPPER_SPECIFIC_HEAT;
+        reset(REFERENCE_TEMPERATURE);
+    }
+
+    /**
+     * @param coil = a coil from CoilCalculator, for its resistance and copper weight
+     * @param otherOhms = resistance of the rest of the circuit (ohms)
+     * @return a model of that coil
+     */
+    public static ThermalModel forCoil(CoilResult coil, double otherOhms) {
+        return new ThermalModel(coil.Resistance(), coil.Weight(), otherOhms);
+    }
+
+    /**
+     * Get ready for a new run, with the coil at the given temperature.
+     * @param ambient = starting temperature of the coil (C)
+     */
+    public void reset(double ambient) {
+        m_ambient = ambient;
+        m_temperature = ambient;
+        m_energy = 0;
+        m_resistance = m_otherOhms + coilResistance(ambient);
+    }
+
+    /**
+     * Heat the coil with one step of current. The resistance goes up with the
+     * temperature during the step too, and that has an exact answer, the
+     * adiabatic rule used for fuses and wires:
+     *     1 + a(T1 - 20) = (1 + a(T0 - 20)) * exp(a * R20 * I^2 t / heat capacity)
+     * @param action = integral of current squared over the step (amp^2 seconds)
+     */
+    public void addStep(double action) {
+        double a = COPPER_TEMPERATURE_COEFFICIENT;
+        double x = (1 + a * (m_temperature - REFERENCE_TEMPERATURE)) * Math.exp(a * m_coilOhms * action / m_heatCapacity);
+        double temperature = REFERENCE_TEMPERATURE + (x - 1) / a;
+        double rise = temperature - m_temperature;
+        m_energy += rise * m_heatCapacity;
+        m_temperature = temperature;
+        m_resistance = m_otherOhms + coilResistance(m_temperature + rise / 2);
+    }
+
+    /**
+     * @return resistance of the whole circuit for the next step, halfway
+     * through it if the coil keeps heating as it did in the last one (ohms)
+     */
+    public double getResistance()           { return m_resistance; }
+
+    /**
+     * @return temperature of the coil right now; with no cooling, this is also the peak (C)
+     */
+    public double getTemperature()          { return m_temperature; }
+
+    /**
+     * @return how much hotter the coil got during the run (C)
+     */
+    public double getPeakTemperatureRise()  { return m_temperature - m_ambient; }
+
+    /**
+     * @return energy turned into heat in the coil during the run (joules)
+     */
+    public double getEnergy()               { return m_energy; }
+
+    private double coilResistance(double temperature) {
+        return m_coilOhms * (1 + COPPER_TEMPERATURE_COEFFICIENT * (temperature - REFERENCE_TEMPERATURE));
+    }
+} // end class ThermalModel
@@ -0,0 +1,107 @@
+package rlc;
+
+import java.awt.Graphics;
+
+/**
+ * TraceDecimator draws a long trajectory as one polyline with no more than
+ * two points per pixel column, however many samples there are. For each
+ * column it keeps the smallest and largest sample that lands there, in the
+ * order they happened, so every spike still shows up, just like on an
+ * oscilloscope. With fewer samples than pixels, every sample is drawn, and
+ * the picture is the same as joining them one line at a time.
+ *
+ * Looking at the samples is one quick pass with no drawing; the drawing is
+ * a single drawPolyline() of about twice the width, so the cost of a graph
+ * no longer grows with the number of steps.
+ *
+ * The point buffers are kept and re-used; use one decimator per thread.
+ */
+
+//----------------------------------------------------------------------
+//           TraceDecimator
+//----------------------------------------------------------------------
+public final class TraceDecimator
+{
+    private int[] m_x = new int[0];
+    private int[] m_y = new int[0];
+    private int m_nPoints;
+
+    /**
+     * Work out the polyline for a trace. Sample ii goes at
+     *    x = left + width * ii / nSamples
+     *    y = bottom - (int)(height * value / fullScale)
+     *
+     * @param values = the trace
+     * @param nSamples = number of samples to draw
+     * @param left, width = where the samples go across (pixels)
+     * @param bottom = y of a zero value (pixels)
+     * @param height = pixels up to fullScale
+     * @param fullScale = value that goes at height pixels above bottom
+     * @return number of points in the polyline; none if there's nothing to
+     * draw, or no room (width or height under a pixel) to draw it in
+     */
+    public int decimate(double[] values, int nSamples, int left, int width,
+                        int bottom, int height, double fullScale) {
+        int nMax = 2 * (width + 1);
+        if (m_x.length < nMax) {
+            m_x = new int[nMax];
+            m_y = new int[nMax];
+        }
+        m_nPoints = 0;
+        if (nSamples <= 0 || width < 1 || height < 1)
+            return 0;
+
+        int ii = 0;
+        while (ii < nSamples) {
+            // every sample in this pixel column
+            int column = (int)((long)width * ii / nSamples);
+            int end = (int)Math.min(nSamples, ((long)(column + 1) * nSamples + width - 1) / width);
+            int iMin = ii, iMax = ii;
+            double vMin = values[ii], vMax = values[ii];
+            for (ii++; ii < end; ii++) {
+                double v = values[ii];
+                if (v < vMin) {
+                    vMin = v;
+                    iMin = ii;
+                }
+                if (v > vMax) {
+                    vMax = v;
+                    iMax = ii;
+                }
+            }
+
+            // both ends of the column's range, in the order they happened
+            int x = left + column;
+            if (iMin == iMax) {
+                add(x, bottom - (int)(height * vMin / fullScale));
+            } else if (iMin < iMax) {
+                add(x, bottom - (int)(height * vMin / fullScale));
+                add(x, bottom - (int)(height * vMax / fullScale));
+            } else {
+                add(x, bottom - (int)(height * vMax / fullScale));
+                add(x, bottom - (int)(height * vMin / fullScale));
+            }
+        }
+        return m_nPoints;
+    }
+
+    /**
+     * Draw the polyline from the last decimate(), in the current colour.
+     */
+    public void draw(Graphics g) {
+        if (m_nPoints == 1)
+            g.drawLine(m_x[0], m_y[0], m_x[0], m_y[0]);
+        else if (m_nPoints > 1)
+            g.drawPolyline(m_x, m_y, m_nPoints);
+    }
+
+    public int getPoints()              { return m_nPoints; }
+    public int getX(int index)          { return m_x[index]; }
+    public int getY(int index)          { return m_y[index]; }
+
+    private void add(int x, int y) {
+        m_x[m_nPoints] = x;
+        m_y[m_nPoints] = y;
+        m_nPoints++;
+    }
+} // end class TraceDecimator
@@ -0,0 +1,122 @@
+package rlc;
+
+/**
+ * TraceRing holds a trajectory for playback: time, capacitor voltage,
+ * inductor current and projectile position at each tick, packed side by
+ * side in one float array. It is a ring: once it is full, each new tick
+ * replaces the oldest, so a live run can be streamed into it forever in
+ * the same memory. Nothing is allocated after the constructor, so an
+ * animation can read it every frame without making garbage.
+ *
+ * Floats are plenty for a picture, and half the size of doubles.
+ *
+ * Typical usage:
+ *    TraceRing ring = new TraceRing(32000);
+ *    ring.load(sim);                             // copy a finished run
+ *    int ii = ring.indexAt(t);                   // tick at or before time t
+ *    float amps = ring.get(TraceRing.AMPS, ii);
+ */
+
+//----------------------------------------------------------------------
+//           TraceRing
+//----------------------------------------------------------------------
+public final class TraceRing
+{
+    // channels, the index for get()
+    public static final int TIME = 0;           // seconds
+    public static final int VOLTS = 1;          // capacitor voltage
+    public static final int AMPS = 2;           // inductor current
+    public static final int POSITION = 3;       // meters; NaN if there's no projectile
+    public static final int NumberOfChannels = 4;
+
+    private final float[] m_data;       // NumberOfChannels floats per tick
+    private final int m_nCapacity;      // ticks
+    private int m_nFirst;               // slot of the oldest tick
+    private int m_nSize;                // ticks held
+
+    /**
+     * @param capacity = most ticks held at once
+     */
+    public TraceRing(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        m_nCapacity = capacity;
+        m_data = new float[capacity * NumberOfChannels];
+    }
+
+    /**
+     * Forget every tick.
+     */
+    public void clear() {
+        m_nFirst = 0;
+        m_nSize = 0;
+    }
+
+    /**
+     * Add a tick after the newest, replacing the oldest if full. Times
+     * should go up, or indexAt() won't find them.
+     */
+    public void put(double t, double volts, double amps, double position) {
+        int slot;
+        if (m_nSize < m_nCapacity) {
+            slot = m_nFirst + m_nSize;
+            if (slot >= m_nCapacity)
+                slot -= m_nCapacity;
+            m_nSize++;
+        } else {
+            slot = m_nFirst;
+            m_nFirst = (m_nFirst + 1 == m_nCapacity) ? 0 : m_nFirst + 1;
+        }
+        int base = slot * NumberOfChannels;
+        m_data[base + TIME] = (float)t;
+        m_data[base + VOLTS] = (float)volts;
+        m_data[base + AMPS] = (float)amps;
+        m_data[base + POSITION] = (float)position;
+    }
+
+    /**
+     * Replace everything with the ticks of a finished run (the newest ones,
+     * if there are more than will fit). There's no projectile, so the
+     * position is NaN.
+     */
+    public void load(SimContext sim) {
+        clear();
+        double[] volts = sim.getVolts();
+        double[] amps = sim.getAmps();
+        double dt = sim.getTimeStep();
+        int nTicks = sim.getTicks();
+        for (int ii=Math.max(0, nTicks - m_nCapacity); ii<nTicks; ii++) {
+            put(ii * dt, volts[ii], amps[ii], Double.NaN);
+        }
+    }
+
+    public int size()                   { return m_nSize; }
+    public int capacity()               { return m_nCapacity; }
+
+    /**
+     * @param channel = TIME, VOLTS, AMPS or POSITION
+     * @param index = 0 for the oldest tick ... size()-1 for the newest
+     */
+    public float get(int channel, int index) {
+        int slot = m_nFirst + index;
+        if (slot >= m_nCapacity)
+            slot -= m_nCapacity;
+        return m_data[slot * NumberOfChannels + channel];
+    }
+
+    /**
+     * @param t = time (seconds)
+     * @return index of the last tick at or before t; 0 if t is before them all, -1 if empty
+     */
+    public int indexAt(double t) {
+        int lo = 0, hi = m_nSize;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (get(TIME, middle) <= t)
+                lo = middle + 1;
+            else
+                hi = middle;
+        }
+        return (m_nSize == 0) ? -1 : Math.max(lo - 1, 0);
+    }
+} // end class TraceRing
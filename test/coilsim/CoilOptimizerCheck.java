@@ -0,0 +1,122 @@
+package coilsim;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class coilsim.CoilOptimizerCheck -
+ * Checks CoilOptimizer's branch and bound against the obvious answer:
+ * calculate every coil in the range with CoilCalculator, keep the ones that
+ * meet the goals, sort them the same way (lowest resistance, then lightest,
+ * then by size and wire) and take the first K. The search must give the
+ * same coils, in the same order, on 1 thread and on 4, with and without the
+ * resistance and weight limits. Exits with status 1 if not.
+ *
+ *    javac -d out $(find src test -name '*.java')
+ *    java -cp out coilsim.CoilOptimizerCheck
+ */
+
+public final class CoilOptimizerCheck {
+    // search space (mm)
+    private static final int MIN_OD = 10, MAX_OD = 30;
+    private static final int MIN_ID = 5, MAX_ID = 20;
+    private static final int MIN_LENGTH = 10, MAX_LENGTH = 40;
+    private static final int TOP_K = 12;
+
+    private static boolean s_bOk = true;
+
+    public static void main(String[] args) {
+        WireCatalog catalog = WireCatalog.forType(WireCatalog.AWG);
+
+        // every coil, the same way CoilOptimizer makes them
+        ArrayList<CoilResult> all = new ArrayList<CoilResult>();
+        for (int od=MIN_OD; od<=MAX_OD; od++) {
+            for (int id=MIN_ID; id<=Math.min(MAX_ID, od - 1); id++) {
+                for (int w=0; w<catalog.size(); w++) {
+                    for (int len=MIN_LENGTH; len<=MAX_LENGTH; len++) {
+                        all.add(CoilCalculator.calculate(od, id, len, catalog.get(w)));
+                    }
+                }
+            }
+        }
+        System.out.println(all.size() + " coils");
+
+        // target (mH), tolerance, max ohms, max kg
+        check(catalog, all, 0.1F, 0.05F, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        check(catalog, all, 0.1F, 0.05F, 0.064F, Float.POSITIVE_INFINITY);    // fewer than K left
+        check(catalog, all, 0.1F, 0.05F, Float.POSITIVE_INFINITY, 0.1F);      // best ones are too heavy
+        check(catalog, all, 0.1F, 0.05F, 0.2F, 0.05F);
+        check(catalog, all, 1.0F, 0.02F, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        check(catalog, all, 1.0F, 0.02F, Float.POSITIVE_INFINITY, 0.08F);
+        check(catalog, all, 1.0F, 0.02F, 0.66F, 0.146F);
+        check(catalog, all, 1.0F, 0.02F, 0.01F, 0.01F);        // nothing is that good
+
+        if (!s_bOk)
+            System.exit(1);
+        System.out.println("all checks passed");
+    }
+
+    private static void check(WireCatalog catalog, ArrayList<CoilResult> all,
+                              float fTarget, float fTolerance, float fMaxOhms, float fMaxKg) {
+        CoilOptimizer opt = new CoilOptimizer(catalog, MIN_OD, MAX_OD, MIN_ID, MAX_ID, MIN_LENGTH, MAX_LENGTH);
+        opt.setTarget(fTarget, fTolerance);
+        opt.setMaxResistance(fMaxOhms);
+        opt.setMaxWeight(fMaxKg);
+        opt.setTopK(TOP_K);
+        CoilResult[] one = opt.search(new ForkJoinPool(1));
+        long nEvaluated = opt.getEvaluated();
+        CoilResult[] four = opt.search(new ForkJoinPool(4));
+
+        ArrayList<CoilResult> good = new ArrayList<CoilResult>();
+        for (CoilResult coil : all) {
+            if (coil.TotalTurns() > 0
+             && Math.abs(coil.Inductance() - fTarget) <= fTarget * fTolerance
+             && coil.Resistance() <= fMaxOhms
+             && coil.Weight() <= fMaxKg)
+                good.add(coil);
+        }
+        good.sort(CoilOptimizerCheck::compare);
+        int nExpected = Math.min(TOP_K, good.size());
+
+        String sName = fTarget + " mH +/-" + fTolerance + ", max " + fMaxOhms + " ohms, " + fMaxKg + " kg";
+        System.out.println(sName + ": " + good.size() + " good coils, " + one.length + " found ("
+                           + nEvaluated + " calculated)");
+
+        boolean same = one.length == nExpected;
+        for (int ii=0; same && ii<nExpected; ii++) {
+            same = key(one[ii]).equals(key(good.get(ii)));
+        }
+        if (!same) {
+            System.out.println("FAILED: not the brute-force answer");
+            s_bOk = false;
+        }
+
+        same = one.length == four.length;
+        for (int ii=0; same && ii<one.length; ii++) {
+            same = key(one[ii]).equals(key(four[ii]));
+        }
+        if (!same) {
+            System.out.println("FAILED: 1 and 4 threads give different answers");
+            s_bOk = false;
+        }
+    }
+
+    /**
+     * the same order as CoilOptimizer: lowest resistance, then lightest, then by size and wire
+     */
+    private static int compare(CoilResult a, CoilResult b) {
+        int c = Float.compare(a.Resistance(), b.Resistance());
+        if (c == 0) c = Float.compare(a.Weight(), b.Weight());
+        if (c == 0) c = Float.compare(a.Geometry().OD(), b.Geometry().OD());
+        if (c == 0) c = Float.compare(a.Geometry().ID(), b.Geometry().ID());
+        if (c == 0) c = Float.compare(a.Geometry().Length(), b.Geometry().Length());
+        if (c == 0) c = Float.compare(a.Wire().CircularMils(), b.Wire().CircularMils());
+        if (c == 0) c = a.Wire().Name().compareTo(b.Wire().Name());
+        return c;
+    }
+
+    private static String key(CoilResult coil) {
+        return coil.Geometry().OD() + "x" + coil.Geometry().ID() + "x" + coil.Geometry().Length()
+             + " " + coil.Wire().Name();
+    }
+}
@@ -0,0 +1,106 @@
+package coilsim;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class coilsim.ParetoCheck -
+ * Checks ParetoSearch against the obvious O(n^2) answer: calculate every
+ * coil in the range, and keep each one that no other coil beats. The two
+ * must give the same set of objective values (coils that tie on all four
+ * count once), and the search must give the same front, in the same
+ * order, on 1 thread and on 4. Exits with status 1 if not.
+ *
+ *    javac -d out $(find src test -name '*.java')
+ *    java -cp out coilsim.ParetoCheck
+ */
+
+public final class ParetoCheck {
+    // search space (mm)
+    private static final int MIN_OD = 10, MAX_OD = 25;
+    private static final int MIN_ID = 5, MAX_ID = 15;
+    private static final int MIN_LENGTH = 10, MAX_LENGTH = 30;
+
+    public static void main(String[] args) {
+        WireCatalog catalog = WireCatalog.forType(WireCatalog.AWG);
+        ParetoSearch search = new ParetoSearch(catalog, MIN_OD, MAX_OD, MIN_ID, MAX_ID, MIN_LENGTH, MAX_LENGTH);
+        ParetoFront one = search.search(new ForkJoinPool(1));
+        ParetoFront four = search.search(new ForkJoinPool(4));
+
+        // every coil, the same way ParetoSearch makes them
+        ArrayList<CoilResult> all = new ArrayList<CoilResult>();
+        for (int od=MIN_OD; od<=MAX_OD; od++) {
+            for (int id=MIN_ID; id<=Math.min(MAX_ID, od - 1); id++) {
+                for (int w=0; w<catalog.size(); w++) {
+                    CopperWire wire = catalog.get(w);
+                    if ((int)((od - id) / 2.F / wire.Diameter()) <= 0)
+                        continue;
+                    for (int len=MIN_LENGTH; len<=MAX_LENGTH; len++) {
+                        if ((int)(len / wire.Diameter()) > 0)
+                            all.add(CoilCalculator.calculate(od, id, len, wire));
+                    }
+                }
+            }
+        }
+        Set<String> bruteForce = new HashSet<String>();
+        for (CoilResult coil : all) {
+            boolean beaten = false;
+            for (int ii=0; ii<all.size() && !beaten; ii++) {
+                beaten = beats(all.get(ii), coil);
+            }
+            if (!beaten)
+                bruteForce.add(key(coil));
+        }
+
+        boolean ok = true;
+        System.out.println(all.size() + " coils (" + search.getEvaluated() + " searched), front of "
+                           + one.size() + ", brute force " + bruteForce.size());
+
+        Set<String> found = new HashSet<String>();
+        for (int ii=0; ii<one.size(); ii++) {
+            found.add(key(one.get(ii)));
+        }
+        if (found.size() != one.size()) {
+            System.out.println("FAILED: the front holds coils that tie");
+            ok = false;
+        }
+        if (!found.equals(bruteForce)) {
+            System.out.println("FAILED: the front is not the brute-force answer");
+            ok = false;
+        }
+        if (search.getEvaluated() != all.size()) {
+            System.out.println("FAILED: searched " + search.getEvaluated() + " coils, not " + all.size());
+            ok = false;
+        }
+
+        boolean same = one.size() == four.size();
+        for (int ii=0; same && ii<one.size(); ii++) {
+            same = one.get(ii) == four.get(ii) || key(one.get(ii)).equals(key(four.get(ii)));
+        }
+        if (!same) {
+            System.out.println("FAILED: 1 and 4 threads give different fronts");
+            ok = false;
+        }
+
+        if (!ok)
+            System.exit(1);
+        System.out.println("all checks passed");
+    }
+
+    /**
+     * @return true if a is at least as good as b in every objective, and better in one
+     */
+    private static boolean beats(CoilResult a, CoilResult b) {
+        boolean asGood = a.Inductance() >= b.Inductance() && a.Resistance() <= b.Resistance()
+                         && a.Weight() <= b.Weight() && a.WireLength() <= b.WireLength();
+        boolean better = a.Inductance() > b.Inductance() || a.Resistance() < b.Resistance()
+                         || a.Weight() < b.Weight() || a.WireLength() < b.WireLength();
+        return asGood && better;
+    }
+
+    private static String key(CoilResult coil) {
+        return coil.Inductance() + "," + coil.Resistance() + "," + coil.Weight() + "," + coil.WireLength();
+    }
+}
@@ -0,0 +1,85 @@
+package rlc;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * MonteCarloCheck runs the same MonteCarlo, with the same seed, on a pool of
+ * 1 thread and on a pool of 8, and checks that the histograms come out the
+ * same to the last bit: every bin count, the runs below and above the bins,
+ * the 5th, 50th and 95th percentiles, the mean and the extremes. It does so
+ * with and without the diode, with uniform and bell-curve tolerances, and
+ * with enough runs to be shared out among many tasks. It exits with status
+ * 1 if anything differs.
+ *
+ *    javac -d out $(find src test -name '*.java')
+ *    java -cp out rlc.MonteCarloCheck
+ */
+
+//----------------------------------------------------------------------
+//           MonteCarloCheck
+//----------------------------------------------------------------------
+public final class MonteCarloCheck
+{
+    private static final long RUNS = 5000;             // several tasks' worth
+    private static final long SEED = 12345L;
+    private static final String[] RESULTS = { "peak current", "pulse width", "zero crossing" };
+
+    private static int s_nFailures;
+
+    public static void main(String[] args) {
+        check("no diode, uniform", new Circuit(0.1, 0.001, 0.01, false), 100, MonteCarlo.UNIFORM);
+        check("no diode, normal", new Circuit(0.1, 0.001, 0.01, false), 100, MonteCarlo.NORMAL);
+        check("diode, uniform", new Circuit(0.1, 0.0005, 0.0047, true), 400, MonteCarlo.UNIFORM);
+
+        if (s_nFailures > 0) {
+            System.out.println(s_nFailures + " check(s) FAILED");
+            System.exit(1);
+        }
+        System.out.println("all checks passed");
+    }
+
+    private static void check(String name, Circuit c, double volts, int distribution) {
+        MonteCarlo mc = new MonteCarlo(c, volts);
+        mc.setTolerance(MonteCarlo.VOLTAGE, 0.05, distribution);
+        mc.setTolerance(MonteCarlo.RESISTANCE, 0.10, distribution);
+        mc.setTolerance(MonteCarlo.CAPACITANCE, 0.20, distribution);
+        mc.setTolerance(MonteCarlo.INDUCTANCE, 0.10, distribution);
+        Histogram[] one = mc.run(RUNS, SEED, new ForkJoinPool(1));
+        Histogram[] eight = mc.run(RUNS, SEED, new ForkJoinPool(8));
+
+        System.out.println(name + ":");
+        for (int r=0; r<MonteCarlo.NumberOfResults; r++) {
+            report(RESULTS[r], same(one[r], eight[r]));
+        }
+        Histogram peak = one[MonteCarlo.PEAK_CURRENT];
+        report("every run counted", peak.getCount() + peak.getBelow() + peak.getAbove() == RUNS);
+    }
+
+    /**
+     * @return true if the two histograms are identical, bit for bit
+     */
+    private static boolean same(Histogram a, Histogram b) {
+        if (a.getBins() != b.getBins() || a.getCount() != b.getCount()
+         || a.getBelow() != b.getBelow() || a.getAbove() != b.getAbove())
+            return false;
+        for (int ii=0; ii<a.getBins(); ii++) {
+            if (a.getBin(ii) != b.getBin(ii))
+                return false;
+        }
+        if (a.getCount() == 0)
+            return true;
+        for (int p : new int[] { 5, 50, 95 }) {
+            if (Double.compare(a.percentile(p), b.percentile(p)) != 0)
+                return false;
+        }
+        return Double.compare(a.getMean(), b.getMean()) == 0
+            && Double.compare(a.getSmallest(), b.getSmallest()) == 0
+            && Double.compare(a.getLargest(), b.getLargest()) == 0;
+    }
+
+    private static void report(String name, boolean ok) {
+        if (!ok)
+            s_nFailures++;
+        System.out.println("  " + (ok ? "ok    " : "FAILED") + " " + name);
+    }
+} // end class MonteCarloCheck
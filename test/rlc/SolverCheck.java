@@ -0,0 +1,175 @@
+package rlc;
+
+/**
+ * SolverCheck compares every Solver with the closed-form response of the
+ * series RLC circuit (AnalyticResponse), and the solvers with each other
+ * where there is a diode and no closed form. Run it after changing a
+ * solver; it prints the worst error of each, and exits with status 1 if
+ * any is worse than it should be.
+ *
+ * Errors are relative to the peak current (or the initial voltage), at
+ * every clock tick of the run.
+ *
+ *    javac -d out $(find src test -name '*.java')
+ *    java -cp out rlc.SolverCheck
+ */
+
+//----------------------------------------------------------------------
+//           SolverCheck
+//----------------------------------------------------------------------
+public final class SolverCheck
+{
+    // under-, critically and over-damped, with the applet's default parts in the middle
+    private static final Circuit[] CIRCUITS = {
+        new Circuit(0.10, 0.001, 0.010, false),     // under-damped
+        new Circuit(0.02, 0.0005, 0.0047, false),   // lightly damped, several cycles
+        new Circuit(2 * Math.sqrt(0.001 / 0.010), 0.001, 0.010, false),    // critically damped
+        new Circuit(1.0, 0.001, 0.010, false),      // over-damped
+    };
+    private static final double VOLTS = 100;
+
+    private static int s_nFailures;
+
+    public static void main(String[] args) {
+        for (int n=0; n<CIRCUITS.length; n++) {
+            Circuit c = CIRCUITS[n];
+            System.out.println(c.getResistance() + " ohm, " + c.getInductance() + " H, " + c.getCapacitance() + " F:");
+            check("Exact", new AnalyticSolver(), c, 500, 1E-12);
+            check("RK4 500 steps", new RK4Kernel(), c, 500, 1E-6);
+            check("RK4 200k steps", new RK4Kernel(), c, 200000, 1E-10);
+            check("RK45 1e-9", new DormandPrince45(1E-9, 1E-9), c, 500, 1E-6);
+            check("TR-BDF2 500 steps", new ImplicitTRBDF2(), c, 500, 1E-3);
+            checkEvents("Exact", new AnalyticSolver(), c, 1E-12, 1E-9);
+            checkEvents("RK4", new RK4Kernel(), c, 1E-6, 1E-3);
+            checkSummary(c);
+        }
+        checkDiode();
+
+        if (s_nFailures > 0) {
+            System.out.println(s_nFailures + " check(s) FAILED");
+            System.exit(1);
+        }
+        System.out.println("all checks passed");
+    }
+
+    /**
+     * worst error of one solver against the closed form, at every tick
+     */
+    private static void check(String name, Solver solver, Circuit c, int nSamples, double limit) {
+        double dt = Circuit.getTotalSimulationTime((float)c.getInductance(), (float)c.getCapacitance()) / nSamples;
+        double[] volts = new double[nSamples];
+        double[] amps = new double[nSamples];
+        volts[0] = VOLTS;
+        solver.solve(c, volts, amps, nSamples, dt);
+
+        AnalyticResponse exact = new AnalyticResponse(c, VOLTS, 0);
+        double worstI = 0, worstV = 0;
+        for (int ii=0; ii<nSamples; ii++) {
+            worstI = Math.max(worstI, Math.abs(amps[ii] - exact.current(ii * dt)));
+            worstV = Math.max(worstV, Math.abs(volts[ii] - exact.voltage(ii * dt)));
+        }
+        double error = Math.max(worstI / exact.peakCurrent(), worstV / VOLTS);
+        report(name, error, limit);
+    }
+
+    /**
+     * the events found while solving, against the closed-form times
+     * @param currentLimit = worst peak current error, as a fraction of the peak
+     * @param timeLimit = worst event time error, as a fraction of a tick
+     */
+    private static void checkEvents(String name, Solver solver, Circuit c, double currentLimit, double timeLimit) {
+        int nSamples = 500;
+        double dt = Circuit.getTotalSimulationTime((float)c.getInductance(), (float)c.getCapacitance()) / nSamples;
+        SimContext context = new SimContext(nSamples);
+        context.run(solver, c, VOLTS, 0, dt);
+        AnalyticResponse exact = new AnalyticResponse(c, VOLTS, 0);
+
+        report(name + " peak current", Math.abs(context.getPeakCurrent() - exact.peakCurrent()) / exact.peakCurrent(), currentLimit);
+        report(name + " peak time", Math.abs(context.getPeakTime() - exact.peakTime()) / dt, timeLimit);
+        double zero = exact.zeroCrossingTime();
+        if (Double.isNaN(zero) != Double.isNaN(context.getZeroCrossingTime()))
+            report(name + " zero crossing found", 1, 0);
+        else if (!Double.isNaN(zero))
+            report(name + " zero crossing time", Math.abs(context.getZeroCrossingTime() - zero) / dt, timeLimit);
+    }
+
+    /**
+     * RunSummary against the closed form: the pulse width between the exact
+     * half-peak times, and I^2 t from the energy balance, since everything
+     * that has left the capacitor and inductor went into R
+     */
+    private static void checkSummary(Circuit c) {
+        int nSamples = 500;
+        double dt = Circuit.getTotalSimulationTime((float)c.getInductance(), (float)c.getCapacitance()) / nSamples;
+        SimContext context = new SimContext(nSamples);
+        context.run(new RK4Kernel(), c, VOLTS, 0, dt);
+        RunSummary summary = RunSummary.summarize(context);
+        AnalyticResponse exact = new AnalyticResponse(c, VOLTS, 0);
+
+        double half = exact.peakCurrent() / 2;
+        double tEnd = (nSamples - 1) * dt;
+        double rise = bisect(exact, half, 0, exact.peakTime());
+        double tFall = Double.isNaN(exact.zeroCrossingTime()) ? tEnd : Math.min(exact.zeroCrossingTime(), tEnd);
+        double fall = (exact.current(tFall) < half) ? bisect(exact, half, exact.peakTime(), tFall) : tEnd;
+        report("RK4 pulse width", Math.abs(summary.getPulseWidth() - (fall - rise)) / dt, 1E-3);
+
+        double C = c.getCapacitance(), L = c.getInductance();
+        double vEnd = exact.voltage(tEnd), iEnd = exact.current(tEnd);
+        double action = (C*VOLTS*VOLTS - C*vEnd*vEnd - L*iEnd*iEnd) / 2 / c.getResistance();
+        report("RK4 I^2 t", Math.abs(summary.getAction() - action) / action, 1E-6);
+    }
+
+    /**
+     * @return time between t0 and t1 when the current passes through the level
+     */
+    private static double bisect(AnalyticResponse exact, double level, double t0, double t1) {
+        boolean rising = exact.current(t0) < level;
+        for (int ii=0; ii<200; ii++) {
+            double t = (t0 + t1) / 2;
+            if ((exact.current(t) < level) == rising)
+                t0 = t;
+            else
+                t1 = t;
+        }
+        return (t0 + t1) / 2;
+    }
+
+    /**
+     * With the diode there's no closed form: the implicit solver at 50 and
+     * 500 steps against a tight RK45 reference, and RK4 must not be trusted
+     */
+    private static void checkDiode() {
+        Circuit c = new Circuit(0.10, 0.001, 0.010, true);
+        double duration = Circuit.getTotalSimulationTime((float)c.getInductance(), (float)c.getCapacitance());
+        System.out.println("with the diode, against RK45 1e-10:");
+
+        int nReference = 5000;
+        double[] refV = new double[nReference];
+        double[] refI = new double[nReference];
+        refV[0] = VOLTS;
+        new DormandPrince45(1E-10, 1E-10).solve(c, refV, refI, nReference, duration / nReference);
+        double peak = 0;
+        for (int ii=0; ii<nReference; ii++) {
+            peak = Math.max(peak, refI[ii]);
+        }
+
+        for (int nSamples : new int[] { 50, 500 }) {
+            double[] volts = new double[nSamples];
+            double[] amps = new double[nSamples];
+            volts[0] = VOLTS;
+            new ImplicitTRBDF2().solve(c, volts, amps, nSamples, duration / nSamples);
+            double worst = 0;
+            for (int ii=0; ii<nSamples; ii++) {
+                worst = Math.max(worst, Math.abs(amps[ii] - refI[ii * (nReference / nSamples)]));
+            }
+            report("TR-BDF2 " + nSamples + " steps, amps (peak " + Math.round(peak) + " A)", worst, nSamples == 50 ? 1.0 : 0.1);
+        }
+    }
+
+    private static void report(String name, double error, double limit) {
+        boolean ok = error <= limit;
+        if (!ok)
+            s_nFailures++;
+        System.out.println("  " + (ok ? "ok    " : "FAILED") + " " + name + ": " + error + " (limit " + limit + ")");
+    }
+} // end class SolverCheck
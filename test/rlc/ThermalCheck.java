@@ -0,0 +1,100 @@
+package rlc;
+
+/**
+ * ThermalCheck heats a coil with no diode during a run (SimContext with a
+ * ThermalModel), with every solver, and checks how hot it got:
+ * - with nothing but the coil to heat, every joule that left the capacitor
+ *   and the inductor must be in the copper
+ * - the rise must follow the adiabatic I^2 t rule for copper from the
+ *   run's own I^2 t
+ * - with so much copper that the resistance hardly changes, the rise must
+ *   match the closed-form response (AnalyticResponse) at fixed resistance
+ *
+ * It prints the worst error of each, and exits with status 1 if any is
+ * worse than it should be.
+ *
+ *    javac -d out $(find src test -name '*.java')
+ *    java -cp out rlc.ThermalCheck
+ */
+
+//----------------------------------------------------------------------
+//           ThermalCheck
+//----------------------------------------------------------------------
+public final class ThermalCheck
+{
+    private static final Circuit CIRCUIT = new Circuit(0.10, 0.001, 0.010, false);   // under-damped
+    private static final double VOLTS = 100;
+    private static final double LIGHT_COPPER = 0.005;   // kg, gets about 25C hotter
+    private static final double HEAVY_COPPER = 100;     // kg, gets about 0.001C hotter
+    private static final int STEPS = 2000;
+
+    private static int s_nFailures;
+
+    public static void main(String[] args) {
+        check("Analytic (RK4 when hot)", new AnalyticSolver(), 1E-5);
+        check("RK4", new RK4Kernel(), 1E-5);
+        check("RK45 1e-9", new DormandPrince45(1E-9, 1E-9), 1E-5);
+        check("TR-BDF2", new ImplicitTRBDF2(), 1E-4);
+
+        if (s_nFailures > 0) {
+            System.out.println(s_nFailures + " check(s) FAILED");
+            System.exit(1);
+        }
+        System.out.println("all checks passed");
+    }
+
+    private static void check(String name, Solver solver, double limit) {
+        double R = CIRCUIT.getResistance();
+        double L = CIRCUIT.getInductance();
+        double C = CIRCUIT.getCapacitance();
+        double dt = Circuit.getTotalSimulationTime((float)L, (float)C) / STEPS;
+        SimContext context = new SimContext(STEPS);
+        double ambient = ThermalModel.REFERENCE_TEMPERATURE;
+
+        // light copper: the resistance goes up a tenth during the run
+        ThermalModel heat = new ThermalModel(R, LIGHT_COPPER, 0);
+        context.setThermalModel(heat, ambient);
+        context.run(solver, CIRCUIT, VOLTS, 0, dt);
+        double rise = context.getTemperatureRise();
+        double heatCapacity = LIGHT_COPPER * ThermalModel.COPPER_SPECIFIC_HEAT;
+
+        int nLast = context.getTicks() - 1;
+        double vEnd = context.getVolts()[nLast];
+        double iEnd = context.getAmps()[nLast];
+        double lost = (C*VOLTS*VOLTS - C*vEnd*vEnd - L*iEnd*iEnd) / 2;
+        report(name + " energy into the copper", Math.abs(rise * heatCapacity - lost) / lost, limit);
+        report(name + " rise against its own I^2 t",
+               Math.abs(rise - adiabaticRise(R, context.getEvents().getAction(), heatCapacity)) / rise, 1E-6);
+
+        // heavy copper: the closed form at fixed resistance
+        context.setThermalModel(new ThermalModel(R, HEAVY_COPPER, 0), ambient);
+        context.run(solver, CIRCUIT, VOLTS, 0, dt);
+        rise = context.getTemperatureRise();
+        heatCapacity = HEAVY_COPPER * ThermalModel.COPPER_SPECIFIC_HEAT;
+
+        AnalyticResponse exact = new AnalyticResponse(CIRCUIT, VOLTS, 0);
+        double tEnd = (STEPS - 1) * dt;
+        vEnd = exact.voltage(tEnd);
+        iEnd = exact.current(tEnd);
+        double action = (C*VOLTS*VOLTS - C*vEnd*vEnd - L*iEnd*iEnd) / 2 / R;
+        double expected = adiabaticRise(R, action, heatCapacity);
+        report(name + " rise against the closed form", Math.abs(rise - expected) / expected, limit);
+    }
+
+    /**
+     * Copper heated too quickly to lose any of it, with its resistance
+     * going up as it goes:  1 + a*rise = exp(a * R * I^2 t / heat capacity),
+     * starting from 20C
+     */
+    private static double adiabaticRise(double ohms, double action, double heatCapacity) {
+        double a = ThermalModel.COPPER_TEMPERATURE_COEFFICIENT;
+        return (Math.exp(a * ohms * action / heatCapacity) - 1) / a;
+    }
+
+    private static void report(String name, double error, double limit) {
+        boolean ok = error <= limit;
+        if (!ok)
+            s_nFailures++;
+        System.out.println("  " + (ok ? "ok    " : "FAILED") + " " + name + ": " + error + " (limit " + limit + ")");
+    }
+} // end class ThermalCheck
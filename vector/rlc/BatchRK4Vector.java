@@ -0,0 +1,240 @@
+package rlc;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BatchRK4Vector advances many independent RLC circuits at once, one circuit
+ * per SIMD lane, using the same Runge-Kutta arithmetic as RK4Kernel.
+ *
+ * One RK4 step of one circuit is only a couple dozen multiply-adds, far too
+ * little work to keep a modern core busy, so instead we line up the state of
+ * N circuits in arrays (struct-of-arrays) and let the Vector API do 4 or 8
+ * circuits per instruction. Each circuit keeps its own components and its
+ * own time step. The diode's exponential is only evaluated in the lanes where
+ * a diode is fitted AND conducting, using a masked operation; if no lane in
+ * a vector needs it, it is skipped altogether.
+ *
+ * Remember the diode makes a circuit stiff; at the usual 500 steps the RK4
+ * method is only dependable for circuits without a diode, see ImplicitTRBDF2.
+ *
+ * The Vector API is still an incubator module, so this class lives in a
+ * source root of its own, vector/, and the rest of the simulator builds
+ * without it. Compile it together with src/, and run it, with
+ *    --add-modules jdk.incubator.vector
+ * Nothing else in the simulator depends on this class.
+ */
+
+//----------------------------------------------------------------------
+//           BatchRK4Vector
+//----------------------------------------------------------------------
+public final class BatchRK4Vector
+{
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double DIODE_SCALE = 1. / 100000.;    // see SimState.diodeCurrent()
+
+    private final int m_nCircuits;
+
+    // state variables, one entry per circuit
+    private final double[] m_volts;         // capacitor voltage (volts)
+    private final double[] m_amps;          // inductor current (amps)
+
+    // component values, pre-digested for the derivative functions
+    private final double[] m_invC;          // 1/C (1/farads)
+    private final double[] m_invL;          // 1/L (1/henries)
+    private final double[] m_RoverL;        // R/L (1/seconds)
+    private final boolean[] m_diode;        // true=diode, false=no diode
+    private final double[] m_dt;            // time step of each circuit (seconds)
+
+    // running statistics, updated by run()
+    private final double[] m_peakCurrent;   // amps
+    private final int[] m_peakIndex;        // tick of the peak current
+    private final int[] m_zeroIndex;        // first tick with negative current, 0 = none yet
+
+    /**
+     * @param nCircuits = number of circuits in the batch
+     */
+    public BatchRK4Vector(int nCircuits) {
+        m_nCircuits = nCircuits;
+        m_volts = new double[nCircuits];
+        m_amps = new double[nCircuits];
+        m_invC = new double[nCircuits];
+        m_invL = new double[nCircuits];
+        m_RoverL = new double[nCircuits];
+        m_diode = new boolean[nCircuits];
+        m_dt = new double[nCircuits];
+        m_peakCurrent = new double[nCircuits];
+        m_peakIndex = new int[nCircuits];
+        m_zeroIndex = new int[nCircuits];
+    }
+
+    /**
+     * Load one circuit into the batch.
+     *
+     * @param k = which circuit, 0 ... nCircuits-1
+     * @param c = component values
+     * @param volts = initial capacitor charge (volts)
+     * @param amps = initial inductor current (amps)
+     * @param dt = time step for this circuit (seconds)
+     */
+    public void setCircuit(int k, Circuit c, double volts, double amps, double dt) {
+        m_volts[k] = volts;
+        m_amps[k] = amps;
+        m_invC[k] = 1. / c.getCapacitance();
+        m_invL[k] = 1. / c.getInductance();
+        m_RoverL[k] = c.getResistance() / c.getInductance();
+        m_diode[k] = c.hasDiode();
+        m_dt[k] = dt;
+    }
+
+    public int size()                   { return m_nCircuits; }
+    public double getVoltage(int k)     { return m_volts[k]; }
+    public double getCurrent(int k)     { return m_amps[k]; }
+    public double getPeakCurrent(int k) { return m_peakCurrent[k]; }
+    public int getPeakIndex(int k)      { return m_peakIndex[k]; }
+
+    /**
+     * @return first tick at which circuit k's current was negative,
+     * or zero if it never reversed
+     */
+    public int getZeroCrossingIndex(int k) {
+        return m_zeroIndex[k];
+    }
+
+    /**
+     * Run every circuit from its initial state for nSteps ticks (including
+     * the initial state, just like RK4Kernel.run), keeping track of the peak
+     * current and first zero-crossing of each. Only the final state is kept.
+     *
+     * @param nSteps = total number of ticks
+     */
+    public void run(int nSteps) {
+        for (int k=0; k<m_nCircuits; k++) {
+            m_peakCurrent[k] = m_amps[k];
+            m_peakIndex[k] = 0;
+            m_zeroIndex[k] = 0;
+        }
+        for (int tick=1; tick<nSteps; tick++) {
+            step();
+            for (int k=0; k<m_nCircuits; k++) {
+                double amps = m_amps[k];
+                if (amps > m_peakCurrent[k]) {
+                    m_peakCurrent[k] = amps;
+                    m_peakIndex[k] = tick;
+                }
+                if (amps < 0 && m_zeroIndex[k] == 0)
+                    m_zeroIndex[k] = tick;
+            }
+        }
+    }
+
+    /**
+     * Advance every circuit by one Runge-Kutta step of its own dt.
+     */
+    public void step() {
+        int k = 0;
+        int upperBound = SPECIES.loopBound(m_nCircuits);
+        for (; k<upperBound; k+=SPECIES.length()) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, m_volts, k);
+            DoubleVector i = DoubleVector.fromArray(SPECIES, m_amps, k);
+            DoubleVector invC = DoubleVector.fromArray(SPECIES, m_invC, k);
+            DoubleVector invL = DoubleVector.fromArray(SPECIES, m_invL, k);
+            DoubleVector RoverL = DoubleVector.fromArray(SPECIES, m_RoverL, k);
+            DoubleVector dt = DoubleVector.fromArray(SPECIES, m_dt, k);
+            DoubleVector halfDt = dt.mul(0.5);
+            VectorMask<Double> diode = VectorMask.fromArray(SPECIES, m_diode, k);
+
+            // m0 is derivative at the current time
+            DoubleVector m0V = dV_dt(v, i, invC, diode);
+            DoubleVector m0I = dI_dt(v, i, invL, RoverL);
+
+            // m1, m2 are estimates of derivative after one-half a time increment
+            DoubleVector sV = m0V.fma(halfDt, v);
+            DoubleVector sI = m0I.fma(halfDt, i);
+            DoubleVector m1V = dV_dt(sV, sI, invC, diode);
+            DoubleVector m1I = dI_dt(sV, sI, invL, RoverL);
+
+            sV = m1V.fma(halfDt, v);
+            sI = m1I.fma(halfDt, i);
+            DoubleVector m2V = dV_dt(sV, sI, invC, diode);
+            DoubleVector m2I = dI_dt(sV, sI, invL, RoverL);
+
+            // m3 is derivative after one complete time increment
+            sV = m2V.fma(dt, v);
+            sI = m2I.fma(dt, i);
+            DoubleVector m3V = dV_dt(sV, sI, invC, diode);
+            DoubleVector m3I = dI_dt(sV, sI, invL, RoverL);
+
+            // combine m0 - m3 according to the Runge-Kutta rules
+            DoubleVector slopeV = m1V.add(m2V).mul(2).add(m0V).add(m3V).div(6);
+            DoubleVector slopeI = m1I.add(m2I).mul(2).add(m0I).add(m3I).div(6);
+            slopeV.fma(dt, v).intoArray(m_volts, k);
+            slopeI.fma(dt, i).intoArray(m_amps, k);
+        }
+
+        // leftover circuits that don't fill a whole vector
+        for (; k<m_nCircuits; k++) {
+            stepScalar(k);
+        }
+    }
+
+    /**
+     * vector version of Circuit.dV_dt()
+     */
+    private static DoubleVector dV_dt(DoubleVector v, DoubleVector i,
+                                      DoubleVector invC, VectorMask<Double> diode) {
+        DoubleVector slope = i.neg();
+        if (diode.anyTrue()) {
+            // diode is reversed across the capacitor, so it sees -Vc,
+            // and only conducts when that is positive
+            DoubleVector vd = v.neg();
+            VectorMask<Double> conducting = diode.and(vd.compare(VectorOperators.GT, 0.));
+            if (conducting.anyTrue()) {
+                DoubleVector id = vd.mul(SimState.DIODE_K)
+                                    .lanewise(VectorOperators.EXP, conducting)
+                                    .mul(DIODE_SCALE);
+                slope = slope.add(id, conducting);
+            }
+        }
+        return slope.mul(invC);
+    }
+
+    /**
+     * vector version of Circuit.dI_dt()
+     */
+    private static DoubleVector dI_dt(DoubleVector v, DoubleVector i,
+                                      DoubleVector invL, DoubleVector RoverL) {
+        return v.mul(invL).sub(i.mul(RoverL));
+    }
+
+    /**
+     * One Runge-Kutta step of circuit k, without vectors.
+     */
+    private void stepScalar(int k) {
+        double v = m_volts[k];
+        double i = m_amps[k];
+        double dt = m_dt[k];
+
+        double m0V = dV_dt(k, v, i),  m0I = dI_dt(k, v, i);
+        double sV = v + m0V * dt / 2, sI = i + m0I * dt / 2;
+        double m1V = dV_dt(k, sV, sI), m1I = dI_dt(k, sV, sI);
+        sV = v + m1V * dt / 2;        sI = i + m1I * dt / 2;
+        double m2V = dV_dt(k, sV, sI), m2I = dI_dt(k, sV, sI);
+        sV = v + m2V * dt;            sI = i + m2I * dt;
+        double m3V = dV_dt(k, sV, sI), m3I = dI_dt(k, sV, sI);
+
+        m_volts[k] = v + (m0V + 2*m1V + 2*m2V + m3V) / 6 * dt;
+        m_amps[k]  = i + (m0I + 2*m1I + 2*m2I + m3I) / 6 * dt;
+    }
+
+    private double dV_dt(int k, double v, double i) {
+        double id = m_diode[k] ? SimState.diodeCurrent(-v) : 0;
+        return (id - i) * m_invC[k];
+    }
+
+    private double dI_dt(int k, double v, double i) {
+        return v * m_invL[k] - i * m_RoverL[k];
+    }
+} // end class BatchRK4Vector
@@ -0,0 +1,77 @@
+package rlc;
+
+import java.util.Random;
+
+/**
+ * BatchRK4VectorCheck runs a batch of circuits without a diode through
+ * BatchRK4Vector, and each of them on its own through RK4Kernel, and
+ * compares the two: the final state, the peak current and the ticks of
+ * the peak and the first zero-crossing. An odd number of circuits makes
+ * sure the scalar leftovers are covered too. Exits with status 1 if the
+ * worst difference is more than 1e-12 of the peak current (or of the
+ * initial voltage).
+ *
+ *    javac --add-modules jdk.incubator.vector -d out $(find src vector -name '*.java')
+ *    java --add-modules jdk.incubator.vector -cp out rlc.BatchRK4VectorCheck
+ */
+
+//----------------------------------------------------------------------
+//           BatchRK4VectorCheck
+//----------------------------------------------------------------------
+public final class BatchRK4VectorCheck
+{
+    private static final int CIRCUITS = 4099;
+    private static final int STEPS = 500;
+    private static final double VOLTS = 100;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        Circuit[] circuits = new Circuit[CIRCUITS];
+        double[] dt = new double[CIRCUITS];
+        BatchRK4Vector batch = new BatchRK4Vector(CIRCUITS);
+        for (int k=0; k<CIRCUITS; k++) {
+            double R = 0.01 + random.nextDouble();
+            double L = 0.0001 + 0.005 * random.nextDouble();
+            double C = 0.001 + 0.02 * random.nextDouble();
+            circuits[k] = new Circuit(R, L, C, false);
+            dt[k] = Circuit.getTotalSimulationTime((float)L, (float)C) / STEPS;
+            batch.setCircuit(k, circuits[k], VOLTS, 0, dt[k]);
+        }
+        batch.run(STEPS);
+
+        RK4Kernel kernel = new RK4Kernel();
+        double[] volts = new double[STEPS];
+        double[] amps = new double[STEPS];
+        double worst = 0;
+        int nTickErrors = 0;
+        for (int k=0; k<CIRCUITS; k++) {
+            volts[0] = VOLTS;
+            amps[0] = 0;
+            kernel.solve(circuits[k], volts, amps, STEPS, dt[k]);
+            double peak = amps[0];
+            int peakIndex = 0, zeroIndex = 0;
+            for (int ii=1; ii<STEPS; ii++) {
+                if (amps[ii] > peak) {
+                    peak = amps[ii];
+                    peakIndex = ii;
+                }
+                if (amps[ii] < 0 && zeroIndex == 0)
+                    zeroIndex = ii;
+            }
+            double error = Math.max(Math.abs(batch.getCurrent(k) - amps[STEPS - 1]),
+                                    Math.abs(batch.getPeakCurrent(k) - peak)) / peak;
+            error = Math.max(error, Math.abs(batch.getVoltage(k) - volts[STEPS - 1]) / VOLTS);
+            worst = Math.max(worst, error);
+            if (batch.getPeakIndex(k) != peakIndex || batch.getZeroCrossingIndex(k) != zeroIndex)
+                nTickErrors++;
+        }
+
+        System.out.println(CIRCUITS + " circuits x " + STEPS + " steps: worst relative difference "
+                           + worst + ", " + nTickErrors + " with different ticks");
+        if (worst > 1E-12 || nTickErrors > 0) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("all checks passed");
+    }
+} // end class BatchRK4VectorCheck